@@ -0,0 +1,193 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Benchmark de ráfagas de POST /api/calls: N pulsaciones simultáneas (una por cama, como una
+// isla entera en código) y llamados/segundo confirmados por ronda. Entre rondas reconoce los
+// llamados creados para liberar el enfriamiento de cada cama.
+//
+// Prepara sus propios datos: crea una isla con N camas y se la asigna al primer enfermero
+// (reemplaza sus islas asignadas), así que conviene correrlo contra una base desechable.
+//
+// Uso (con la aplicación corriendo y el usuario admin/admin123 de DataInitializer):
+//   java bench/CallBurstBenchmark.java [baseUrl] [presses] [rounds]
+//   java bench/CallBurstBenchmark.java http://localhost:8080 200 5
+//
+// Para comparar, arrancar el servidor con -Dcalls.ingest.batch.enabled=false y luego con true,
+// en ambos casos con -Dratelimit.enabled=false: todas las pulsaciones salen de la misma IP y el
+// límite por IP (ratelimit.ip.*) rechazaría la ráfaga con 429.
+public class CallBurstBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private record Press(int status, long latencyNanos, Long callId) {}
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int presses = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(executor)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+        String token = login(client, baseUrl);
+        List<Long> bedIds = setUp(client, baseUrl, token, presses);
+
+        System.out.println("=== Call burst benchmark ===");
+        System.out.printf("presses per round       %d%n", presses);
+        double totalRate = 0;
+        for (int round = 1; round <= rounds; round++) {
+            ConcurrentLinkedQueue<Press> results = new ConcurrentLinkedQueue<>();
+            CountDownLatch gate = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(presses);
+            for (Long bedId : bedIds) {
+                executor.execute(() -> {
+                    try {
+                        gate.await();
+                        results.add(press(client, baseUrl, bedId));
+                    } catch (Exception e) {
+                        results.add(new Press(-1, 0, null));
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            gate.countDown();
+            done.await();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            List<Long> created = new ArrayList<>();
+            long[] latencies = results.stream().mapToLong(Press::latencyNanos).sorted().toArray();
+            int failed = 0;
+            for (Press p : results) {
+                if (p.callId() != null) {
+                    created.add(p.callId());
+                } else {
+                    failed++;
+                }
+            }
+            double rate = created.size() / seconds;
+            totalRate += rate;
+            System.out.printf("round %-3d created %d, failed %d in %.3f s -> %.0f calls/s  (p50 %.1f ms  p99 %.1f ms  max %.1f ms)%n",
+                round, created.size(), failed, seconds, rate,
+                pct(latencies, 50), pct(latencies, 99), latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+
+            // reconocer para que la próxima ronda no choque con el enfriamiento de 30 s
+            CountDownLatch acked = new CountDownLatch(created.size());
+            for (Long callId : created) {
+                executor.execute(() -> {
+                    try {
+                        post(client, baseUrl + "/api/calls/" + callId + "/ack", token, null);
+                    } catch (Exception ignored) {
+                    } finally {
+                        acked.countDown();
+                    }
+                });
+            }
+            acked.await();
+        }
+        System.out.printf("average                 %.0f calls/s%n", totalRate / rounds);
+        System.out.println("server ingest stats     " + get(client, baseUrl + "/api/admin/calls/ingest/stats", token));
+        executor.shutdownNow();
+        System.exit(0);
+    }
+
+    // Isla nueva con 'presses' camas, asignada al primer enfermero para que el enrutamiento resuelva
+    private static List<Long> setUp(HttpClient client, String baseUrl, String token, int presses) throws Exception {
+        String island = post(client, baseUrl + "/api/islands", token,
+            "{\"name\":\"bench-burst-" + System.currentTimeMillis() + "\",\"description\":\"CallBurstBenchmark\"}");
+        long islandId = firstId(island);
+        List<Long> bedIds = new ArrayList<>();
+        for (int i = 1; i <= presses; i++) {
+            String bed = post(client, baseUrl + "/api/islands/" + islandId + "/beds", token, "{\"bedNumber\":\"B" + i + "\"}");
+            bedIds.add(firstId(bed));
+        }
+        long nurseId = firstId(get(client, baseUrl + "/api/nurses", token));
+        post(client, baseUrl + "/api/nurses/" + nurseId + "/assign", token, "{\"islandIds\":[" + islandId + "]}");
+        return bedIds;
+    }
+
+    private static Press press(HttpClient client, String baseUrl, Long bedId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/calls"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"bedId\":" + bedId + "}"))
+            .build();
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        long latency = System.nanoTime() - start;
+        Long callId = null;
+        if (response.statusCode() == 200) {
+            Matcher m = ID.matcher(response.body());
+            if (m.find()) {
+                callId = Long.parseLong(m.group(1));
+            }
+        }
+        return new Press(response.statusCode(), latency, callId);
+    }
+
+    private static String login(HttpClient client, String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+            .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher m = TOKEN.matcher(body);
+        if (!m.find()) {
+            throw new IllegalStateException("Login failed: " + body);
+        }
+        return m.group(1);
+    }
+
+    private static String get(HttpClient client, String url, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", "Bearer " + token)
+            .GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static String post(HttpClient client, String url, String token, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", "Bearer " + token)
+            .header("Content-Type", "application/json")
+            .POST(json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(url + " -> " + response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private static long firstId(String json) {
+        Matcher m = ID.matcher(json);
+        if (!m.find()) {
+            throw new IllegalStateException("No id in " + json);
+        }
+        return Long.parseLong(m.group(1));
+    }
+
+    private static double pct(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
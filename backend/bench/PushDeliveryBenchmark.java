@@ -0,0 +1,217 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Entrega de Web Push sin salir a internet: levanta un servicio de push de mentira (acepta el
+// POST cifrado y responde 201, con demora y fallos configurables), registra N suscripciones de un
+// enfermero apuntando a él y dispara /api/admin/push/test. Reporta pushes/s recibidos, latencia
+// desde el disparo hasta la llegada, concurrencia máxima vista por el servicio y
+// /api/admin/push/stats (reintentos, suscripciones borradas por 410).
+//
+// Las suscripciones quedan en la base: correrlo contra una base desechable. La aplicación tiene
+// que poder llegar a http://localhost:<sinkPort>.
+//
+// Uso (con la aplicación corriendo y el usuario admin/admin123 de DataInitializer):
+//   java bench/PushDeliveryBenchmark.java [baseUrl] [subscriptions] [pushesPerSubscription] [sinkPort] [delayMs] [failPercent] [gone]
+//   java bench/PushDeliveryBenchmark.java http://localhost:8080 50 20 9099 20 5 2
+// Solo el servicio de push de mentira (para pruebas manuales):
+//   java bench/PushDeliveryBenchmark.java --sink 9099 [delayMs] [failPercent]
+public class PushDeliveryBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern QUEUED = Pattern.compile("\"queued\"\\s*:\\s*(\\d+)");
+
+    private static final LongAdder received = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+    private static final ConcurrentLinkedQueue<Long> arrivals = new ConcurrentLinkedQueue<>();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--sink")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 9099;
+            startSink(port, args.length > 2 ? Integer.parseInt(args[2]) : 0, args.length > 3 ? Integer.parseInt(args[3]) : 0);
+            System.out.println("Push sink listening on http://localhost:" + port + "/push/<id> (paths ending in -gone answer 410)");
+            Thread.currentThread().join();
+        }
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int subscriptions = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int perSubscription = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 9099;
+        int delayMs = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        int failPercent = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        int gone = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+
+        HttpServer sink = startSink(port, delayMs, failPercent);
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        String token = login(client, baseUrl);
+        long nurseId = firstId(get(client, baseUrl + "/api/nurses", token));
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < subscriptions + gone; i++) {
+            String path = "/push/" + runId + "-" + i + (i >= subscriptions ? "-gone" : "");
+            post(client, baseUrl + "/api/push/subscribe/" + nurseId, token, subscriptionJson("http://localhost:" + port + path));
+        }
+
+        long start = System.nanoTime();
+        String test = post(client, baseUrl + "/api/admin/push/test?nurseId=" + nurseId + "&count=" + perSubscription, token, null);
+        Matcher m = QUEUED.matcher(test);
+        long queued = m.find() ? Long.parseLong(m.group(1)) : 0;
+        // las suscripciones anteriores del enfermero también reciben; se espera hasta que el
+        // servicio de mentira deje de recibir por 2 s
+        long lastCount = -1;
+        long quietSince = System.nanoTime();
+        while (System.nanoTime() - quietSince < 2_000_000_000L) {
+            Thread.sleep(100);
+            long now = received.sum() + rejected.sum();
+            if (now != lastCount) {
+                lastCount = now;
+                quietSince = System.nanoTime();
+            }
+        }
+        long[] latencies = arrivals.stream().mapToLong(t -> t - start).sorted().toArray();
+        double seconds = latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e9;
+        sink.stop(0);
+
+        System.out.println("=== Push delivery benchmark ===");
+        System.out.printf("subscriptions           %d (+%d gone), %d pushes each, sink delay %d ms, %d%% 503%n",
+            subscriptions, gone, perSubscription, delayMs, failPercent);
+        System.out.printf("queued by server        %d%n", queued);
+        System.out.printf("accepted by sink        %d (503 answered: %d)%n", received.sum(), rejected.sum());
+        System.out.printf("throughput              %.0f pushes/s%n", seconds == 0 ? 0 : received.sum() / seconds);
+        System.out.printf("latency p50/p90/p99/max %.1f / %.1f / %.1f / %.1f ms%n",
+            pct(latencies, 50), pct(latencies, 90), pct(latencies, 99), pct(latencies, 100));
+        System.out.printf("max concurrent at sink  %d%n", maxInFlight.get());
+        System.out.println("server stats            " + get(client, baseUrl + "/api/admin/push/stats", token));
+    }
+
+    private static HttpServer startSink(int port, int delayMs, int failPercent) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/push/", exchange -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+                int status;
+                if (exchange.getRequestURI().getPath().endsWith("-gone")) {
+                    status = 410;
+                } else if (failPercent > 0 && ThreadLocalRandom.current().nextInt(100) < failPercent) {
+                    status = 503;
+                    rejected.increment();
+                } else {
+                    status = 201;
+                    received.increment();
+                    arrivals.add(System.nanoTime());
+                }
+                exchange.sendResponseHeaders(status, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    // Claves reales de una suscripción (P-256 sin comprimir + auth de 16 bytes) para que el
+    // servidor pueda cifrar; el servicio de mentira no descifra
+    private static String subscriptionJson(String endpoint) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        ECPublicKey key = (ECPublicKey) generator.generateKeyPair().getPublic();
+        byte[] point = new byte[65];
+        point[0] = 0x04;
+        System.arraycopy(fixed32(key.getW().getAffineX()), 0, point, 1, 32);
+        System.arraycopy(fixed32(key.getW().getAffineY()), 0, point, 33, 32);
+        byte[] auth = new byte[16];
+        new SecureRandom().nextBytes(auth);
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        return "{\"subscription\":{\"endpoint\":\"" + endpoint + "\",\"keys\":{\"p256dh\":\"" + b64.encodeToString(point)
+            + "\",\"auth\":\"" + b64.encodeToString(auth) + "\"}}}";
+    }
+
+    private static byte[] fixed32(BigInteger value) {
+        byte[] raw = value.toByteArray();
+        byte[] out = new byte[32];
+        int copy = Math.min(raw.length, 32);
+        System.arraycopy(raw, raw.length - copy, out, 32 - copy, copy);
+        return out;
+    }
+
+    private static String login(HttpClient client, String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+            .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher m = TOKEN.matcher(body);
+        if (!m.find()) {
+            throw new IllegalStateException("Login failed: " + body);
+        }
+        return m.group(1);
+    }
+
+    private static String get(HttpClient client, String url, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", "Bearer " + token)
+            .GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static String post(HttpClient client, String url, String token, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", "Bearer " + token)
+            .header("Content-Type", "application/json")
+            .POST(json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(url + " -> " + response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private static long firstId(String json) {
+        Matcher m = ID.matcher(json);
+        if (!m.find()) {
+            throw new IllegalStateException("No id in " + json);
+        }
+        return Long.parseLong(m.group(1));
+    }
+
+    private static double pct(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
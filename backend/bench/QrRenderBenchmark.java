@@ -0,0 +1,117 @@
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.hospital.util.BitMatrixImageWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Costo de generar la imagen de un QR de cama, un hilo, sin HTTP de por medio:
+// - dataurl: el camino anterior (matriz de 300x300, MatrixToImageWriter, Base64 de la data URL)
+// - png:     matriz a un píxel por módulo + BitMatrixImageWriter escribiendo a un stream
+// - svg:     misma matriz como SVG
+// Reporta µs/imagen, bytes asignados por imagen (ThreadMXBean) y tamaño de la salida.
+//
+// Uso (después de mvn compile, desde backend/; los jar de zxing están en ~/.m2):
+//   java -cp "target/classes:<core.jar>:<javase.jar>" bench/QrRenderBenchmark.java [seconds] [payloadChars]
+//   java -cp "target/classes:$HOME/.m2/repository/com/google/zxing/core/3.5.2/core-3.5.2.jar:$HOME/.m2/repository/com/google/zxing/javase/3.5.2/javase-3.5.2.jar" bench/QrRenderBenchmark.java 5 400
+public class QrRenderBenchmark {
+
+    private static final int SIZE = 300;
+
+    interface Render {
+        long run(String json, OutputStream sink) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int payloadChars = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        String json = payload(payloadChars);
+        CountingStream sink = new CountingStream();
+
+        Render dataUrl = (payload, out) -> {
+            BitMatrix matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, SIZE, SIZE);
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(matrix, "PNG", png);
+            String url = "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+            return url.length();
+        };
+        Render png = (payload, out) -> {
+            BitMatrix matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0);
+            long before = ((CountingStream) out).count;
+            BitMatrixImageWriter.writePng(matrix, SIZE, out);
+            return ((CountingStream) out).count - before;
+        };
+        Render svg = (payload, out) -> {
+            BitMatrix matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0);
+            long before = ((CountingStream) out).count;
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            BitMatrixImageWriter.writeSvg(matrix, SIZE, writer);
+            writer.flush();
+            return ((CountingStream) out).count - before;
+        };
+
+        System.out.println("=== QR render benchmark ===");
+        System.out.printf("payload %d chars, %dx%d px, %d s per variant%n", json.length(), SIZE, SIZE, seconds);
+        System.out.printf("%-10s %12s %16s %14s%n", "variant", "us/image", "alloc B/image", "output bytes");
+        for (String name : new String[] {"dataurl", "png", "svg"}) {
+            Render render = switch (name) {
+                case "dataurl" -> dataUrl;
+                case "png" -> png;
+                default -> svg;
+            };
+            measure(render, json, sink, 2); // calentamiento
+            double[] result = measure(render, json, sink, seconds);
+            System.out.printf("%-10s %12.1f %16.0f %14.0f%n", name, result[0], result[1], result[2]);
+        }
+    }
+
+    // [µs por imagen, bytes asignados por imagen, bytes de salida]
+    private static double[] measure(Render render, String json, CountingStream sink, int seconds) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        long ops = 0;
+        long outputBytes = 0;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        while (System.nanoTime() < end) {
+            outputBytes = render.run(json, sink);
+            ops++;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new double[] {elapsed / 1e3 / ops, allocated / (double) ops, outputBytes};
+    }
+
+    // Parecido al QRCodeData de una cama con paciente y enfermero
+    private static String payload(int chars) {
+        StringBuilder sb = new StringBuilder("{\"qrCode\":\"6f1c2a9e-3b7d-4e21-9a55-0c8d7e6b4f13\",\"bedId\":42,"
+            + "\"bedNumber\":\"12\",\"islandName\":\"Isla Norte\",\"patientInfo\":{\"name\":\"María Fernanda López\","
+            + "\"diagnosis\":\"");
+        while (sb.length() < chars - 40) {
+            sb.append("observación ");
+        }
+        return sb.append("\",\"medicalRecordNumber\":\"MR-000123\"}}").toString();
+    }
+
+    // Solo cuenta: el costo medido es el de dibujar, no el de guardar la salida
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
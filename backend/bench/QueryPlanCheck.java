@@ -0,0 +1,122 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Plan de ejecución (EXPLAIN) de las consultas frecuentes de los repositorios, para comparar una
+// base antes y después de las migraciones de índices (db/migration/*/V2__hot_query_indexes.sql).
+// Por cada consulta muestra el índice elegido o SCAN si recorre la tabla completa; termina con
+// código 1 si alguna hace un recorrido completo.
+//
+// Uso (desde backend/, con el driver JDBC en el classpath):
+//   java -cp ~/.m2/repository/com/h2database/h2/<ver>/h2-<ver>.jar bench/QueryPlanCheck.java "jdbc:h2:file:./data/hospitaldb;AUTO_SERVER=TRUE" sa ""
+//   java -cp ~/.m2/repository/com/mysql/mysql-connector-j/<ver>/mysql-connector-j-<ver>.jar bench/QueryPlanCheck.java "jdbc:mysql://localhost:3306/hospital_db" root root
+public class QueryPlanCheck {
+
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("ActiveCallRepository.findCallsByNurseId",
+            "select a.call_id from active_calls a where a.nurse_id = 1 order by a.created_at desc");
+        QUERIES.put("CallRetentionService.getHistory (calls, nurseId)",
+            "select * from calls c where c.created_at >= '2024-01-01 00:00:00' and c.created_at < '2024-02-01 00:00:00' and c.nurse_id = 1");
+        QUERIES.put("CallRetentionService.getHistory (calls, bedId)",
+            "select * from calls c where c.created_at >= '2024-01-01 00:00:00' and c.created_at < '2024-02-01 00:00:00' and c.bed_id = 1");
+        QUERIES.put("CallRepository.findAckTimesSince",
+            "select created_at, acknowledged_at from calls where acknowledged_at is not null and created_at >= '2024-01-01 00:00:00'");
+        QUERIES.put("CallRepository.findIdsClosedBefore",
+            "select id from calls where status in (2, 3) and created_at < '2024-01-01 00:00:00' order by id limit 500");
+        QUERIES.put("CallRetentionService.getHistory (archivo)",
+            "select * from calls_archive where created_at >= '2024-01-01 00:00:00' and created_at < '2024-02-01 00:00:00' and nurse_id = 1");
+        QUERIES.put("BedRepository.findByQrCode",
+            "select * from beds where qr_code = 'x'");
+        QUERIES.put("BedRepository.findByBedNumberAndIsland",
+            "select * from beds where bed_number = '1' and island_id = 1");
+        QUERIES.put("NurseRepository.findByUserId",
+            "select * from nurses where user_id = 1");
+        QUERIES.put("CallEscalationRepository.findByCallIdOrderByHopAsc",
+            "select * from call_escalations where call_id = 1 order by hop");
+        QUERIES.put("PushSubscriptionRepository.findByEndpointHash",
+            "select * from push_subscriptions where endpoint_hash = 'x'");
+        QUERIES.put("UserRepository.findByEmail",
+            "select * from users where email = 'x'");
+        QUERIES.put("CallIdempotencyKeyRepository.deleteCreatedBefore",
+            "select idempotency_key from call_idempotency_keys where created_at < '2024-01-01 00:00:00'");
+        QUERIES.put("OutboxCursorRepository.deleteStale",
+            "select consumer from outbox_cursors where consumer like 'sse:%' and updated_at < '2024-01-01 00:00:00'");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("uso: QueryPlanCheck <jdbc-url> [usuario] [contraseña]");
+            System.exit(2);
+        }
+        String user = args.length > 1 ? args[1] : "";
+        String password = args.length > 2 ? args[2] : "";
+        int scans = 0;
+        try (Connection conn = DriverManager.getConnection(args[0], user, password);
+             Statement st = conn.createStatement()) {
+            boolean mysql = conn.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            System.out.println("=== Query plans (" + conn.getMetaData().getDatabaseProductName() + ") ===");
+            for (Map.Entry<String, String> q : QUERIES.entrySet()) {
+                String access = mysql ? mysqlAccess(st, q.getValue()) : h2Access(st, q.getValue());
+                if (access.startsWith("SCAN")) {
+                    scans++;
+                }
+                System.out.printf("%-55s %s%n", q.getKey(), access);
+            }
+        }
+        System.out.println(scans == 0 ? "all queries use an index" : scans + " queries scan the whole table");
+        System.exit(scans == 0 ? 0 : 1);
+    }
+
+    // H2: el plan anota cada tabla con el índice usado, o "tableScan"
+    private static String h2Access(Statement st, String sql) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet rs = st.executeQuery("explain " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1));
+            }
+        }
+        String text = plan.toString().replaceAll("\\s+", " ");
+        if (text.contains("tableScan")) {
+            return "SCAN";
+        }
+        int start = text.indexOf("/* ");
+        int end = start >= 0 ? text.indexOf(" */", start) : -1;
+        return start >= 0 && end > start ? text.substring(start + 3, end) : text;
+    }
+
+    // MySQL: columnas 'type' y 'key' del EXPLAIN (type = ALL es un recorrido completo)
+    private static String mysqlAccess(Statement st, String sql) throws Exception {
+        List<String> keys = new ArrayList<>();
+        boolean scan = false;
+        try (ResultSet rs = st.executeQuery("explain " + sql)) {
+            ResultSetMetaData md = rs.getMetaData();
+            while (rs.next()) {
+                String type = null;
+                String key = null;
+                String extra = null;
+                for (int i = 1; i <= md.getColumnCount(); i++) {
+                    if ("type".equalsIgnoreCase(md.getColumnLabel(i))) {
+                        type = rs.getString(i);
+                    } else if ("key".equalsIgnoreCase(md.getColumnLabel(i))) {
+                        key = rs.getString(i);
+                    } else if ("Extra".equalsIgnoreCase(md.getColumnLabel(i))) {
+                        extra = rs.getString(i);
+                    }
+                }
+                scan |= "ALL".equalsIgnoreCase(type);
+                // sin tipo: el optimizador resolvió la consulta al planificar (p. ej. una búsqueda
+                // por clave única sin coincidencias); Extra dice cómo
+                keys.add(type == null ? "- (" + extra + ")" : type + " " + (key != null ? key : "-"));
+            }
+        }
+        return (scan ? "SCAN " : "") + String.join(", ", keys);
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+// Benchmark reproducible de /api/calls/stream: abre N streams SSE contra una JVM,
+// mide heap por conexión y percentiles de latencia de fan-out. Las conexiones se reparten
+// entre los enfermeros existentes (varias por enfermero, como varios dispositivos).
+//
+// Uso (con la aplicación corriendo y el usuario admin/admin123 de DataInitializer):
+//   ulimit -n 65536
+//   java bench/SseFanoutBenchmark.java [baseUrl] [connections] [pings] [jmxHost:port]
+//   java bench/SseFanoutBenchmark.java http://localhost:8080 10000 20 localhost:9010
+//
+// El heap se lee por JMX (y se fuerza un GC antes de cada lectura desde el cliente JMX), así
+// que la aplicación debe arrancar con JMX remoto, p. ej.:
+//   -Dcom.sun.management.jmxremote.port=9010 -Dcom.sun.management.jmxremote.authenticate=false
+//   -Dcom.sun.management.jmxremote.ssl=false
+// Sin jmxHost:port solo se reportan conexiones y latencias.
+//
+// Requiere Java 21 (hilos virtuales). El servidor y el benchmark deben correr en la
+// misma máquina: la latencia se calcula con el reloj de pared (sentAtMicros del ping).
+public class SseFanoutBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern SENT_AT = Pattern.compile("\"sentAtMicros\"\\s*:\\s*(\\d+)");
+    private static final Pattern TOP_LEVEL_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int pings = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        String jmx = args.length > 3 ? args[3] : null;
+
+        ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(readers)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+        String token = login(client, baseUrl);
+        List<Long> nurseIds = nurseIds(client, baseUrl, token);
+        if (nurseIds.isEmpty()) {
+            throw new IllegalStateException("No hay enfermeros: /api/calls/stream/{id} solo acepta enfermeros existentes");
+        }
+        long heapBefore = heapAfterGc(jmx);
+        long connectionsBefore = stat(client, baseUrl, token, "connections");
+
+        ConcurrentLinkedQueue<Long> latenciesMicros = new ConcurrentLinkedQueue<>();
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<InputStream> streams = new ArrayList<>();
+
+        long connectStart = System.nanoTime();
+        for (int i = 1; i <= connections; i++) {
+            Long nurseId = nurseIds.get(i % nurseIds.size());
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/calls/stream/" + nurseId))
+                .header("Accept", "text/event-stream")
+                .GET().build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()).whenComplete((response, error) -> {
+                if (error != null || response.statusCode() != 200) {
+                    failed.incrementAndGet();
+                    return;
+                }
+                opened.incrementAndGet();
+                synchronized (streams) {
+                    streams.add(response.body());
+                }
+                readers.execute(() -> read(response.body(), latenciesMicros));
+            });
+        }
+
+        // esperar a que el servidor vea todas las conexiones
+        long deadline = System.currentTimeMillis() + 120_000;
+        long serverConnections = 0;
+        while (System.currentTimeMillis() < deadline) {
+            serverConnections = stat(client, baseUrl, token, "connections") - connectionsBefore;
+            if (serverConnections + failed.get() >= connections) {
+                break;
+            }
+            Thread.sleep(500);
+        }
+        double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+
+        long heapAfter = heapAfterGc(jmx);
+
+        for (int i = 0; i < pings; i++) {
+            post(client, baseUrl + "/api/admin/streams/ping", token);
+            Thread.sleep(500);
+        }
+        Thread.sleep(2_000);
+
+        long[] sorted = latenciesMicros.stream().mapToLong(Long::longValue).sorted().toArray();
+        long expected = (long) serverConnections * pings;
+
+        System.out.println("=== SSE fan-out benchmark ===");
+        System.out.printf("connections requested   %d (over %d nurses)%n", connections, nurseIds.size());
+        System.out.printf("connections open        %d (client) / %d (server), failed %d%n", opened.get(), serverConnections, failed.get());
+        System.out.printf("connect time            %.1f s%n", connectSeconds);
+        if (jmx == null) {
+            System.out.println("heap                    (sin JMX: pase jmxHost:port para medirlo)");
+        } else {
+            System.out.printf("heap before / after     %.1f MB / %.1f MB%n", heapBefore / 1048576.0, heapAfter / 1048576.0);
+            if (serverConnections > 0) {
+                System.out.printf("heap per connection     %.1f KB%n", (heapAfter - heapBefore) / 1024.0 / serverConnections);
+            }
+        }
+        System.out.printf("pings                   %d, deliveries %d / %d expected%n", pings, sorted.length, expected);
+        if (sorted.length > 0) {
+            System.out.printf("fan-out latency (ms)    p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                pct(sorted, 50), pct(sorted, 90), pct(sorted, 99), pct(sorted, 99.9), sorted[sorted.length - 1] / 1000.0);
+        }
+
+        synchronized (streams) {
+            for (InputStream in : streams) {
+                try {
+                    in.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+        readers.shutdownNow();
+        System.exit(0);
+    }
+
+    private static void read(InputStream body, ConcurrentLinkedQueue<Long> latenciesMicros) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            boolean ping = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("event:")) {
+                    ping = line.substring(6).trim().equals("ping");
+                } else if (ping && line.startsWith("data:")) {
+                    Matcher m = SENT_AT.matcher(line);
+                    if (m.find()) {
+                        Instant now = Instant.now();
+                        long nowMicros = now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+                        latenciesMicros.add(nowMicros - Long.parseLong(m.group(1)));
+                    }
+                } else if (line.isEmpty()) {
+                    ping = false;
+                }
+            }
+        } catch (Exception ignored) {
+            // stream cerrado al terminar
+        }
+    }
+
+    private static String login(HttpClient client, String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+            .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher m = TOKEN.matcher(body);
+        if (!m.find()) {
+            throw new IllegalStateException("Login failed: " + body);
+        }
+        return m.group(1);
+    }
+
+    // Heap usado del servidor tras un GC completo, pedido por JMX (0 si no hay JMX)
+    private static long heapAfterGc(String hostPort) throws Exception {
+        if (hostPort == null) {
+            return 0;
+        }
+        JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://" + hostPort + "/jmxrmi");
+        try (JMXConnector connector = JMXConnectorFactory.connect(url)) {
+            MemoryMXBean memory = ManagementFactory.newPlatformMXBeanProxy(
+                connector.getMBeanServerConnection(), ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+            memory.gc();
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    // Ids de enfermero de GET /api/nurses: solo los "id" del primer nivel de cada elemento
+    // (los objetos anidados, islas y camas, también tienen "id")
+    private static List<Long> nurseIds(HttpClient client, String baseUrl, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/nurses"))
+            .header("Authorization", "Bearer " + token)
+            .GET().build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        List<Long> ids = new ArrayList<>();
+        int depth = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '"') {
+                int end = i + 1;
+                while (end < body.length() && body.charAt(end) != '"') {
+                    end += body.charAt(end) == '\\' ? 2 : 1;
+                }
+                if (depth == 2 && body.startsWith("\"id\"", i)) {
+                    Matcher m = TOP_LEVEL_ID.matcher(body).region(i, body.length());
+                    if (m.lookingAt()) {
+                        ids.add(Long.parseLong(m.group(1)));
+                    }
+                }
+                i = end;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+        return ids;
+    }
+
+    private static long stat(HttpClient client, String baseUrl, String token, String field) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/admin/streams/stats"))
+            .header("Authorization", "Bearer " + token)
+            .GET().build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher m = Pattern.compile("\"" + field + "\"\\s*:\\s*(\\d+)").matcher(body);
+        return m.find() ? Long.parseLong(m.group(1)) : 0;
+    }
+
+    private static void post(HttpClient client, String url, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", "Bearer " + token)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+        client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static double pct(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+}
@@ -0,0 +1,59 @@
+import com.hospital.util.TokenBucketLimiter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+// Costo por petición de TokenBucketLimiter (el que usa RateLimitFilter), sin HTTP de por medio:
+// varios hilos consultan claves de un conjunto de tamaño fijo y se reporta ns/operación.
+//
+// Uso (después de mvn compile, desde backend/):
+//   java -cp target/classes bench/TokenBucketLimiterBenchmark.java [threads] [keys] [seconds]
+//   java -cp target/classes bench/TokenBucketLimiterBenchmark.java 8 10000 5
+public class TokenBucketLimiterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int keyCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100, 20, 100_000, 64);
+
+        // calentamiento para que el JIT compile tryAcquire
+        run(limiter, keys, threads, 2);
+        long ops = run(limiter, keys, threads, seconds);
+
+        System.out.println("=== Token bucket limiter benchmark ===");
+        System.out.printf("threads %d, keys %d, %d s%n", threads, keyCount, seconds);
+        System.out.printf("throughput              %.1f M ops/s%n", ops / (double) seconds / 1e6);
+        System.out.printf("cost per request        %.1f ns (per thread)%n", seconds * 1e9 * threads / ops);
+        System.out.printf("allowed / rejected      %d / %d%n", limiter.allowedCount(), limiter.rejectedCount());
+    }
+
+    private static long run(TokenBucketLimiter limiter, String[] keys, int threads, int seconds) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            Thread.ofPlatform().start(() -> {
+                long n = 0;
+                int i = seed * 7919;
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    for (int k = 0; k < 1000; k++) {
+                        limiter.tryAcquire(keys[(i++ & Integer.MAX_VALUE) % keys.length], now);
+                    }
+                    n += 1000;
+                }
+                ops.add(n);
+                done.countDown();
+            });
+        }
+        done.await();
+        return ops.sum();
+    }
+}
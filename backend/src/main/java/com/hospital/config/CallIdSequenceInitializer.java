@@ -0,0 +1,54 @@
+package com.hospital.config;
+
+import com.hospital.model.Call;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// calls.id pasó de IDENTITY a la secuencia calls_seq: en una base existente la secuencia nueva
+// empieza en 1 y chocaría con los ids ya creados. Antes de atender peticiones se adelanta hasta
+// dejar el primer bloque por encima de max(id). Nunca la retrocede (otras instancias pueden
+// tener bloques reservados).
+@Component
+public class CallIdSequenceInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallIdSequenceInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // el esquema (migraciones de Flyway) ya existe cuando la fábrica de EntityManager está creada
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void align() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from calls", Long.class);
+        if (maxId == null || maxId == 0) {
+            return;
+        }
+        long floor = maxId + Call.ID_ALLOCATION_SIZE + 1;
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if ("H2".equalsIgnoreCase(product)) {
+            Long next = jdbcTemplate.queryForObject(
+                "select base_value from information_schema.sequences where upper(sequence_name) = 'CALLS_SEQ'", Long.class);
+            if (next != null && next < floor) {
+                jdbcTemplate.execute("alter sequence calls_seq restart with " + floor);
+                logger.info("calls_seq moved from {} to {} (max id {})", next, floor, maxId);
+            }
+        } else if (product != null && product.toLowerCase().contains("mysql")) {
+            // MySQL no tiene secuencias: Hibernate usa la tabla calls_seq(next_val)
+            int updated = jdbcTemplate.update("update calls_seq set next_val = ? where next_val < ?", floor, floor);
+            if (updated > 0) {
+                logger.info("calls_seq moved to {} (max id {})", floor, maxId);
+            }
+        } else {
+            logger.warn("calls_seq alignment not implemented for {}; check it is above max(calls.id) = {}", product, maxId);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.hospital.controller;
+
+import com.hospital.security.RateLimitFilter;
+import com.hospital.service.CallEventBus;
+import com.hospital.service.CallExportService;
+import com.hospital.service.CallIdempotencyStore;
+import com.hospital.service.CallNotificationDispatcher;
+import com.hospital.service.CallResponseTimeStats;
+import com.hospital.service.CallRetentionService;
+import com.hospital.service.CallService;
+import com.hospital.service.CallStreamHub;
+import com.hospital.service.PushCoalescer;
+import com.hospital.service.PushService;
+import com.hospital.service.QRCodeService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+public class AdminController {
+
+    @Autowired
+    private CallNotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private CallStreamHub streamHub;
+
+    @Autowired
+    private CallEventBus eventBus;
+
+    @Autowired
+    private CallService callService;
+
+    @Autowired
+    private CallIdempotencyStore idempotencyStore;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private CallRetentionService retentionService;
+
+    @Autowired
+    private CallResponseTimeStats responseTimeStats;
+
+    @Autowired
+    private CallExportService exportService;
+
+    @Autowired
+    private PushService pushService;
+
+    @Autowired
+    private PushCoalescer pushCoalescer;
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    // Métricas de la cola de notificaciones (profundidad, descartes, timeouts por canal)
+    @GetMapping("/notifications/stats")
+    public ResponseEntity<Map<String, Object>> getNotificationStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(notificationDispatcher.getStats());
+        stats.put("bus", eventBus.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Agrupamiento de altas de llamados (lotes confirmados, tamaño medio, reintentos individuales)
+    @GetMapping("/calls/ingest/stats")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(callService.getIngestStats());
+        stats.put("idempotency", idempotencyStore.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Percentiles de tiempo hasta el reconocimiento desde agregados en memoria
+    // groupBy: total | island | nurse | hour; islandId / nurseId filtran
+    @GetMapping("/calls/stats")
+    public ResponseEntity<Map<String, Object>> getCallStats(@RequestParam(value = "hours", defaultValue = "24") int hours,
+                                                            @RequestParam(value = "groupBy", defaultValue = "total") String groupBy,
+                                                            @RequestParam(value = "islandId", required = false) Long islandId,
+                                                            @RequestParam(value = "nurseId", required = false) Long nurseId) {
+        return ResponseEntity.ok(responseTimeStats.query(hours, groupBy, islandId, nurseId));
+    }
+
+    // Estado de la retención (archivado de llamados cerrados)
+    @GetMapping("/calls/retention/stats")
+    public ResponseEntity<Map<String, Object>> getRetentionStats() {
+        return ResponseEntity.ok(retentionService.getStats());
+    }
+
+    // Ejecuta una pasada de archivado fuera del horario programado
+    @PostMapping("/calls/retention/run")
+    public ResponseEntity<Map<String, Object>> runRetention() {
+        Thread.ofVirtual().name("call-retention-manual").start(retentionService::archiveClosedCalls);
+        return ResponseEntity.accepted().body(Map.of("started", true));
+    }
+
+    // Entrega de Web Push: pendientes, enviados, reintentos, suscripciones borradas, respuestas por
+    // código, y agrupación por enfermero (notificaciones y peticiones ahorradas, demora agregada)
+    @GetMapping("/push/stats")
+    public ResponseEntity<Map<String, Object>> getPushStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(pushService.getStats());
+        stats.put("coalescing", pushCoalescer.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Prueba de carga de la entrega (ver bench/PushDeliveryBenchmark.java)
+    @PostMapping("/push/test")
+    public ResponseEntity<Map<String, Object>> sendTestPush(@RequestParam("nurseId") Long nurseId,
+                                                            @RequestParam(value = "count", defaultValue = "1") int count) {
+        int queued = pushService.sendTest(nurseId, Math.max(1, Math.min(count, 10_000)));
+        return ResponseEntity.ok(Map.of("queued", queued));
+    }
+
+    // Exportación del historial (calls + calls_archive) en CSV o NDJSON.
+    // Se escribe directo a la respuesta mientras se lee el cursor; no hay límite de filas.
+    @GetMapping("/calls/export")
+    public void exportCalls(@RequestParam(value = "format", defaultValue = "csv") String format,
+                            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                            @RequestParam(value = "islandId", required = false) Long islandId,
+                            HttpServletResponse response) throws IOException {
+        boolean ndjson = CallExportService.NDJSON.equalsIgnoreCase(format);
+        if (!ndjson && !CallExportService.CSV.equalsIgnoreCase(format)) {
+            response.sendError(400, "Formato no soportado: " + format);
+            return;
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now().plusMinutes(1);
+        String extension = ndjson ? CallExportService.NDJSON : CallExportService.CSV;
+        response.setContentType(ndjson ? "application/x-ndjson" : "text/csv");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"llamados." + extension + "\"");
+        exportService.export(response.getOutputStream(), extension, from, end, islandId);
+    }
+
+    // Caché de imágenes QR: entradas, bytes usados sobre el presupuesto, aciertos y descartes
+    @GetMapping("/qr/cache/stats")
+    public ResponseEntity<Map<String, Object>> getQRCacheStats() {
+        return ResponseEntity.ok(qrCodeService.getImageCacheStats());
+    }
+
+    // Token buckets de los endpoints públicos: totales y claves (IP / cama) con más rechazos
+    @GetMapping("/ratelimit/stats")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats(@RequestParam(value = "top", defaultValue = "20") int top) {
+        return ResponseEntity.ok(rateLimitFilter.getStats(Math.max(0, Math.min(top, 500))));
+    }
+
+    // Conexiones SSE, bytes pendientes / reenviados y heap usado (sin forzar GC: para medir heap
+    // por conexión, bench/SseFanoutBenchmark lo pide por JMX)
+    @GetMapping("/streams/stats")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        return ResponseEntity.ok(streamHub.getStats());
+    }
+
+    // Evento de prueba a todas las conexiones SSE; lo usa bench/SseFanoutBenchmark para medir latencia
+    @PostMapping("/streams/ping")
+    public ResponseEntity<Map<String, Object>> pingStreams() {
+        Instant now = Instant.now();
+        long sentAtMicros = now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+        int queued = streamHub.broadcast("ping", Map.of("sentAtMicros", sentAtMicros));
+        return ResponseEntity.ok(Map.of("queued", queued, "sentAtMicros", sentAtMicros));
+    }
+}
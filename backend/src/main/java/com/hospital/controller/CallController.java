@@ -1,14 +1,27 @@
 package com.hospital.controller;
 
+import com.hospital.dto.CallHistoryDTO;
 import com.hospital.model.Call;
+import com.hospital.model.CallEscalation;
+import com.hospital.service.CallIdempotencyStore;
+import com.hospital.service.CallInboxVersions;
+import com.hospital.service.CallRetentionService;
 import com.hospital.service.CallService;
+import com.hospital.service.CallStreamHub;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.HashMap;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,46 +30,189 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class CallController {
 
+    private static final long MAX_POLL_SECONDS = 60;
+
     @Autowired
     private CallService callService;
 
+    @Autowired
+    private CallInboxVersions inboxVersions;
+
+    @Autowired
+    private CallIdempotencyStore idempotencyStore;
+
+    @Autowired
+    private CallRetentionService retentionService;
+
     // Public endpoint: patient can create a call by bedId
+    // Con Idempotency-Key, un reintento devuelve la respuesta original sin volver a crear
+    // el llamado ni notificar (cabecera Idempotent-Replayed: true)
     @PostMapping
-    public ResponseEntity<?> createCall(@RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> createCall(@RequestBody Map<String, Object> body,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             Number bedIdNum = (Number) body.get("bedId");
             if (bedIdNum == null) {
                 return ResponseEntity.badRequest().body("bedId es requerido") ;
             }
             Long bedId = bedIdNum.longValue();
-            Call call = callService.createCall(bedId);
-            Map<String, Object> resp = new HashMap<>();
-            resp.put("id", call.getId());
-            resp.put("status", call.getStatus());
-            resp.put("createdAt", call.getCreatedAt());
-            return ResponseEntity.ok(resp);
+            if (idempotencyKey == null) {
+                Call call = callService.createCall(bedId);
+                return ResponseEntity.ok(CallIdempotencyStore.createdResponse(call.getId(), call.getStatus(), call.getCreatedAt()));
+            }
+            if (idempotencyKey.isBlank() || idempotencyKey.length() > CallIdempotencyStore.MAX_KEY_LENGTH) {
+                return ResponseEntity.badRequest().body("Idempotency-Key inválida");
+            }
+            CallIdempotencyStore.Result result = idempotencyStore.execute(idempotencyKey, bedId,
+                key -> callService.createCall(bedId, key));
+            return ResponseEntity.ok()
+                .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                .body(result.body());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    // GET condicional: con If-None-Match igual a la versión actual de la bandeja responde 304 sin tocar la BD
     @GetMapping("/nurse/{nurseId}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_NURSE')")
-    public ResponseEntity<List<Call>> getCallsForNurse(@PathVariable Long nurseId) {
-        return ResponseEntity.ok(callService.getActiveCallsForNurse(nurseId));
+    public ResponseEntity<List<Call>> getCallsForNurse(@PathVariable Long nurseId,
+                                                       @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        Long realNurseId = callService.resolveNurseId(nurseId);
+        if (realNurseId == null) {
+            return ResponseEntity.ok(new ArrayList<>());
+        }
+        String etag = inboxVersions.etag(realNurseId);
+        if (inboxVersions.matches(etag, ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return inboxResponse(realNurseId, etag);
+    }
+
+    // Long-poll: si la bandeja sigue igual a If-None-Match, la petición queda aparcada hasta
+    // que cambie o pasen 'timeout' segundos (entonces 304)
+    @GetMapping("/nurse/{nurseId}/poll")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_NURSE')")
+    public DeferredResult<ResponseEntity<List<Call>>> pollCallsForNurse(@PathVariable Long nurseId,
+                                                                        @RequestParam(value = "timeout", defaultValue = "25") long timeout,
+                                                                        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        long timeoutMs = Math.max(1, Math.min(timeout, MAX_POLL_SECONDS)) * 1000;
+        DeferredResult<ResponseEntity<List<Call>>> result = new DeferredResult<>(timeoutMs);
+        Long realNurseId = callService.resolveNurseId(nurseId);
+        if (realNurseId == null) {
+            result.setResult(ResponseEntity.ok(new ArrayList<>()));
+            return result;
+        }
+        String etag = inboxVersions.etag(realNurseId);
+        if (!inboxVersions.matches(etag, ifNoneMatch)) {
+            result.setResult(inboxResponse(realNurseId, etag));
+            return result;
+        }
+        Runnable onChange = () -> {
+            if (!result.isSetOrExpired()) {
+                result.setResult(inboxResponse(realNurseId, inboxVersions.etag(realNurseId)));
+            }
+        };
+        result.onTimeout(() -> {
+            inboxVersions.cancel(realNurseId, onChange);
+            result.setResult(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        });
+        result.onCompletion(() -> inboxVersions.cancel(realNurseId, onChange));
+        inboxVersions.onChange(realNurseId, etag, onChange);
+        return result;
+    }
+
+    // La versión se lee antes que los datos: si cambia en medio, el próximo sondeo vuelve a pedirlos
+    private ResponseEntity<List<Call>> inboxResponse(Long realNurseId, String etag) {
+        return ResponseEntity.ok()
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .body(callService.getActiveCallsByNurseId(realNurseId));
+    }
+
+    // EventSource reenvía Last-Event-ID al reconectar; también se acepta como query param
+    @GetMapping("/stream/admin")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public SseEmitter streamAdminCalls(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                       @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        return callService.subscribeAdmin(lastEventId != null ? lastEventId : lastEventIdParam);
     }
 
+    // Solo enfermeros existentes: un id desconocido (o el del canal de administración) da 404
     @GetMapping("/stream/{nurseId}")
-    public SseEmitter streamCalls(@PathVariable Long nurseId) {
-        return callService.subscribe(nurseId);
+    public ResponseEntity<SseEmitter> streamCalls(@PathVariable Long nurseId,
+                                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                  @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        Long realNurseId = callService.resolveNurseId(nurseId);
+        if (realNurseId == null || CallStreamHub.ADMIN_CHANNEL.equals(realNurseId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(callService.subscribe(realNurseId, lastEventId != null ? lastEventId : lastEventIdParam));
+    }
+
+    // Historial por rango [from, to) (ISO-8601), sobre llamados recientes y archivados
+    @GetMapping("/history")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_NURSE')")
+    public ResponseEntity<List<CallHistoryDTO>> getHistory(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "nurseId", required = false) Long nurseId,
+            @RequestParam(value = "bedId", required = false) Long bedId,
+            @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now().plusMinutes(1);
+        Long realNurseId = nurseId != null ? callService.resolveNurseId(nurseId) : null;
+        return ResponseEntity.ok(retentionService.getHistory(from, end, realNurseId != null ? realNurseId : nurseId, bedId, limit));
+    }
+
+    // Historial de escalamientos del llamado (saltos con marcas de tiempo)
+    @GetMapping("/{id}/escalations")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_NURSE')")
+    public ResponseEntity<List<CallEscalation>> getEscalations(@PathVariable Long id) {
+        return ResponseEntity.ok(callService.getEscalations(id));
     }
 
+    // 409 si el llamado ya no está activo o cambió mientras se reconocía (otro enfermero ganó)
     @PostMapping("/{id}/ack")
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_NURSE')")
     public ResponseEntity<?> ack(@PathVariable Long id) {
         try {
             Call c = callService.acknowledgeCall(id);
             return ResponseEntity.ok(c);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Reconocimiento en lote: {"ids": [...]} o {"bedId": n} (todos los abiertos de la cama).
+    // Responde cuántos se reconocieron y el resultado por id.
+    @PostMapping("/ack")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_NURSE')")
+    public ResponseEntity<?> ackBulk(@RequestBody Map<String, Object> body) {
+        try {
+            Map<Long, String> results;
+            if (body.get("bedId") instanceof Number bedId) {
+                results = callService.acknowledgeBed(bedId.longValue());
+            } else if (body.get("ids") instanceof List<?> rawIds) {
+                if (rawIds.size() > CallService.MAX_BULK_ACK) {
+                    return ResponseEntity.badRequest().body("Máximo " + CallService.MAX_BULK_ACK + " llamados por petición");
+                }
+                List<Long> ids = new ArrayList<>(rawIds.size());
+                for (Object raw : rawIds) {
+                    if (!(raw instanceof Number n)) {
+                        return ResponseEntity.badRequest().body("ids debe ser una lista de números");
+                    }
+                    ids.add(n.longValue());
+                }
+                results = callService.acknowledgeCalls(ids);
+            } else {
+                return ResponseEntity.badRequest().body("ids o bedId es requerido");
+            }
+            Map<String, Object> resp = new LinkedHashMap<>();
+            resp.put("acknowledged", results.values().stream().filter(CallService.ACK_OK::equals).count());
+            resp.put("results", results);
+            return ResponseEntity.ok(resp);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -3,11 +3,15 @@ package com.hospital.controller;
 import com.hospital.dto.BedDTO;
 import com.hospital.dto.IslandDTO;
 import com.hospital.service.IslandService;
+import com.hospital.service.QRLabelSheetService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,6 +21,9 @@ public class IslandController {
     
     @Autowired
     private IslandService islandService;
+
+    @Autowired
+    private QRLabelSheetService qrLabelSheetService;
     
     @GetMapping
     public ResponseEntity<List<IslandDTO>> getAllIslands() {
@@ -52,7 +59,44 @@ public class IslandController {
     public ResponseEntity<BedDTO> addBedToIsland(@PathVariable Long islandId, @RequestBody BedDTO bedDTO) {
         return ResponseEntity.ok(islandService.addBedToIsland(islandId, bedDTO));
     }
-}
 
+    // Etiquetas QR de todas las camas de la isla: ZIP con un PNG por cama y etiquetas.html para imprimir
+    @GetMapping("/{id}/labels")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void getIslandLabels(@PathVariable Long id,
+                                @RequestParam(value = "size", defaultValue = "300") int size,
+                                HttpServletResponse response) throws IOException {
+        writeLabels(List.of(id), size, response);
+    }
 
+    // Igual, para varias islas en un solo ZIP (?ids=1,2,3)
+    @GetMapping("/labels")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void getLabelsForIslands(@RequestParam("ids") List<Long> ids,
+                                    @RequestParam(value = "size", defaultValue = "300") int size,
+                                    HttpServletResponse response) throws IOException {
+        writeLabels(ids, size, response);
+    }
 
+    private void writeLabels(List<Long> ids, int size, HttpServletResponse response) throws IOException {
+        if (ids.isEmpty()) {
+            response.sendError(400, "Indique al menos una isla");
+            return;
+        }
+        if (ids.stream().distinct().count() > qrLabelSheetService.getMaxIslands()) {
+            response.sendError(400, "Como máximo " + qrLabelSheetService.getMaxIslands() + " islas por solicitud");
+            return;
+        }
+        List<QRLabelSheetService.IslandLabels> plan;
+        try {
+            plan = qrLabelSheetService.plan(ids);
+        } catch (RuntimeException e) {
+            response.sendError(404, e.getMessage());
+            return;
+        }
+        String name = ids.size() == 1 ? "etiquetas-isla-" + ids.get(0) + ".zip" : "etiquetas-islas.zip";
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "\"");
+        qrLabelSheetService.writeZip(plan, Math.max(64, Math.min(size, 2048)), response.getOutputStream());
+    }
+}
@@ -1,8 +1,9 @@
 package com.hospital.controller;
 
-import com.hospital.model.PushSubscription;
 import com.hospital.service.PushService;
+import com.hospital.service.PushSubscriptionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,9 +17,16 @@ public class PushController {
     @Autowired
     private PushService pushService;
 
+    @Autowired
+    private PushSubscriptionService subscriptionService;
+
     @GetMapping("/vapidPublicKey")
     public ResponseEntity<?> getVapidPublicKey() {
-        return ResponseEntity.ok(Map.of("publicKey", pushService.getPublicKey()));
+        String publicKey = pushService.getPublicKey();
+        if (publicKey == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Notificaciones push no configuradas"));
+        }
+        return ResponseEntity.ok(Map.of("publicKey", publicKey));
     }
 
     @PostMapping("/subscribe/{nurseId}")
@@ -30,12 +38,8 @@ public class PushController {
             String p256dh = keys.get("p256dh");
             String auth = keys.get("auth");
 
-            PushSubscription ps = new PushSubscription();
-            ps.setEndpoint(endpoint);
-            ps.setP256dh(p256dh);
-            ps.setAuth(auth);
-            PushSubscription saved = pushService.saveSubscription(nurseId, ps);
-            return ResponseEntity.ok(Map.of("id", saved.getId()));
+            Long id = subscriptionService.subscribe(nurseId, endpoint, p256dh, auth);
+            return ResponseEntity.ok(Map.of("id", id));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
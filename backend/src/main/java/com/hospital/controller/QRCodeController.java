@@ -1,17 +1,28 @@
 package com.hospital.controller;
 
+import com.google.zxing.WriterException;
 import com.hospital.dto.QRCodeData;
 import com.hospital.model.Bed;
 import com.hospital.repository.BedRepository;
 import com.hospital.service.QRCodeService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/qr")
 @CrossOrigin(origins = "*")
 public class QRCodeController {
+
+    private static final int MIN_IMAGE_SIZE = 64;
+    private static final int MAX_IMAGE_SIZE = 2048;
     
     @Autowired
     private QRCodeService qrCodeService;
@@ -19,18 +30,62 @@ public class QRCodeController {
     @Autowired
     private BedRepository bedRepository;
     
+    // ETag fuerte por contenido: con If-None-Match igual responde 304 sin volver a enviar la imagen
     @GetMapping("/bed/{bedId}")
-    public ResponseEntity<String> getQRCodeImage(@PathVariable Long bedId) {
+    public ResponseEntity<String> getQRCodeImage(@PathVariable Long bedId,
+                                                 @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             Bed bed = bedRepository.findById(bedId)
                 .orElseThrow(() -> new RuntimeException("Cama no encontrada"));
-            String qrImage = qrCodeService.generateQRCodeForBed(bed);
-            return ResponseEntity.ok(qrImage);
+            QRCodeService.QRContent content = qrCodeService.contentFor(bed);
+            String etag = content.etag("url");
+            if (QRCodeService.QRContent.matches(etag, ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(qrCodeService.render(bedId, content).dataUrl());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error al generar QR: " + e.getMessage());
         }
     }
 
+    // La imagen cruda (image/png o image/svg+xml), escrita directo a la respuesta: sin data URL
+    // ni Base64. Para <img src> y descargas; mismo ETag por contenido que /bed/{bedId}.
+    @GetMapping("/bed/{bedId}/image")
+    public void getQRCodeRawImage(@PathVariable Long bedId,
+                                  @RequestParam(value = "format", defaultValue = QRCodeService.PNG) String format,
+                                  @RequestParam(value = "size", defaultValue = "300") int size,
+                                  @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+                                  HttpServletResponse response) throws IOException {
+        String kind = format.toLowerCase();
+        if (!QRCodeService.PNG.equals(kind) && !QRCodeService.SVG.equals(kind)) {
+            response.sendError(400, "Formato no soportado: " + format);
+            return;
+        }
+        Bed bed = bedRepository.findById(bedId).orElse(null);
+        if (bed == null) {
+            response.sendError(404, "Cama no encontrada");
+            return;
+        }
+        int pixels = Math.max(MIN_IMAGE_SIZE, Math.min(size, MAX_IMAGE_SIZE));
+        QRCodeService.QRContent content = qrCodeService.contentFor(bed);
+        String etag = content.etag(kind + pixels);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (QRCodeService.QRContent.matches(etag, ifNoneMatch)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        response.setContentType(QRCodeService.SVG.equals(kind) ? "image/svg+xml" : MediaType.IMAGE_PNG_VALUE);
+        try {
+            qrCodeService.writeImage(bedId, content, kind, pixels, response.getOutputStream());
+        } catch (WriterException e) {
+            response.sendError(400, "Error al generar QR: " + e.getMessage());
+        }
+    }
+
     // Genera (o devuelve) un token QR para la cama y lo persiste en la BDD.
     @GetMapping("/token/bed/{bedId}")
     public ResponseEntity<String> generateOrGetToken(@PathVariable Long bedId) {
@@ -0,0 +1,164 @@
+package com.hospital.dto;
+
+import com.hospital.model.Bed;
+import com.hospital.model.Call;
+import com.hospital.model.Patient;
+
+import java.time.LocalDateTime;
+
+// Instantánea de un llamado que viaja por SSE / push fuera de la transacción
+// (no contiene entidades, así que no depende de la sesión de Hibernate)
+public class CallEvent {
+    public static final String CREATED = "CALL_CREATED";
+    public static final String ACKNOWLEDGED = "CALL_ACKNOWLEDGED";
+    public static final String EXPIRED = "CALL_EXPIRED";
+    public static final String ESCALATED = "CALL_ESCALATED";
+    public static final String REASSIGNED = "CALL_REASSIGNED";
+    // no es de un llamado: avisa a los demás nodos que recarguen el índice de enrutamiento
+    public static final String ROUTING_CHANGED = "ROUTING_CHANGED";
+    // tampoco: cambiaron las suscripciones push de nurseId, los demás nodos recargan su registro
+    public static final String PUSH_SUBSCRIPTIONS_CHANGED = "PUSH_SUBSCRIPTIONS_CHANGED";
+
+    private String type;
+    private Long callId;
+    private String status;
+    private Long nurseId;
+    private Long bedId;
+    private String bedNumber;
+    private Long islandId;
+    private String patientName;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private Integer escalationLevel;
+    private LocalDateTime acknowledgedAt;
+
+    public static CallEvent from(Call call, String type) {
+        CallEvent event = new CallEvent();
+        event.setType(type);
+        event.setCallId(call.getId());
+        event.setStatus(call.getStatus() != null ? call.getStatus().name() : null);
+        event.setNurseId(call.getNurse() != null ? call.getNurse().getId() : null);
+        Bed bed = call.getBed();
+        if (bed != null) {
+            event.setBedId(bed.getId());
+            event.setBedNumber(bed.getBedNumber() != null ? bed.getBedNumber() : String.valueOf(bed.getId()));
+            event.setIslandId(bed.getIsland() != null ? bed.getIsland().getId() : null);
+        }
+        Patient patient = call.getPatient();
+        event.setPatientName(patient != null && patient.getUser() != null ? patient.getUser().getFullName() : "Paciente");
+        event.setCreatedAt(call.getCreatedAt());
+        event.setExpiresAt(call.getExpiresAt());
+        event.setEscalationLevel(call.getEscalationLevel());
+        event.setAcknowledgedAt(call.getAcknowledgedAt());
+        return event;
+    }
+
+    public static CallEvent routingChanged() {
+        CallEvent event = new CallEvent();
+        event.setType(ROUTING_CHANGED);
+        return event;
+    }
+
+    public static CallEvent pushSubscriptionsChanged(Long nurseId) {
+        CallEvent event = new CallEvent();
+        event.setType(PUSH_SUBSCRIPTIONS_CHANGED);
+        event.setNurseId(nurseId);
+        return event;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getCallId() {
+        return callId;
+    }
+
+    public void setCallId(Long callId) {
+        this.callId = callId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getNurseId() {
+        return nurseId;
+    }
+
+    public void setNurseId(Long nurseId) {
+        this.nurseId = nurseId;
+    }
+
+    public Long getBedId() {
+        return bedId;
+    }
+
+    public void setBedId(Long bedId) {
+        this.bedId = bedId;
+    }
+
+    public String getBedNumber() {
+        return bedNumber;
+    }
+
+    public void setBedNumber(String bedNumber) {
+        this.bedNumber = bedNumber;
+    }
+
+    public Long getIslandId() {
+        return islandId;
+    }
+
+    public void setIslandId(Long islandId) {
+        this.islandId = islandId;
+    }
+
+    public String getPatientName() {
+        return patientName;
+    }
+
+    public void setPatientName(String patientName) {
+        this.patientName = patientName;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getAcknowledgedAt() {
+        return acknowledgedAt;
+    }
+
+    public void setAcknowledgedAt(LocalDateTime acknowledgedAt) {
+        this.acknowledgedAt = acknowledgedAt;
+    }
+
+    public Integer getEscalationLevel() {
+        return escalationLevel;
+    }
+
+    public void setEscalationLevel(Integer escalationLevel) {
+        this.escalationLevel = escalationLevel;
+    }
+}
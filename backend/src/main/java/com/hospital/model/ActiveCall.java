@@ -0,0 +1,64 @@
+package com.hospital.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Llamado abierto (status = ACTIVE). Tabla angosta que se mantiene en la misma transacción que
+// 'calls': fila al crear, nurse_id al escalar y borrado al reconocer o vencer. "Llamados activos
+// del enfermero X" recorre unas pocas filas de aquí en lugar del índice de 'calls', que crece con
+// todo el historial (MySQL y H2 no tienen índices parciales).
+@Entity
+@Table(name = "active_calls", indexes = {
+    @Index(name = "idx_active_calls_nurse_created", columnList = "nurse_id, created_at"),
+    @Index(name = "idx_active_calls_bed", columnList = "bed_id")
+})
+public class ActiveCall {
+    @Id
+    @Column(name = "call_id")
+    private Long callId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "call_id")
+    private Call call;
+
+    @Column(name = "nurse_id")
+    private Long nurseId;
+
+    @Column(name = "bed_id")
+    private Long bedId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    public static ActiveCall of(Call call) {
+        ActiveCall active = new ActiveCall();
+        active.setCall(call);
+        active.setNurseId(call.getNurse() != null ? call.getNurse().getId() : null);
+        active.setBedId(call.getBed() != null ? call.getBed().getId() : null);
+        active.setCreatedAt(call.getCreatedAt());
+        active.setExpiresAt(call.getExpiresAt());
+        return active;
+    }
+
+    public Long getCallId() { return callId; }
+    public void setCallId(Long callId) { this.callId = callId; }
+
+    public Call getCall() { return call; }
+    public void setCall(Call call) { this.call = call; }
+
+    public Long getNurseId() { return nurseId; }
+    public void setNurseId(Long nurseId) { this.nurseId = nurseId; }
+
+    public Long getBedId() { return bedId; }
+    public void setBedId(Long bedId) { this.bedId = bedId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
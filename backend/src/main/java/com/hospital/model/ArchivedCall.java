@@ -0,0 +1,89 @@
+package com.hospital.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Llamado cerrado (ACKNOWLEDGED / EXPIRED) movido fuera de 'calls' por CallRetentionService.
+// Conserva el id original; las relaciones quedan como ids sueltos (sin FK) para que borrar una
+// cama o un paciente no arrastre el historial. island_id se copia al archivar porque una cama
+// puede cambiar de isla después.
+@Entity
+@Table(name = "calls_archive", indexes = {
+    @Index(name = "idx_calls_archive_created", columnList = "created_at"),
+    @Index(name = "idx_calls_archive_nurse_created", columnList = "nurse_id, created_at"),
+    @Index(name = "idx_calls_archive_bed_created", columnList = "bed_id, created_at")
+})
+public class ArchivedCall {
+    @Id
+    private Long id;
+
+    @Column(name = "bed_id")
+    private Long bedId;
+
+    @Column(name = "island_id")
+    private Long islandId;
+
+    @Column(name = "patient_id")
+    private Long patientId;
+
+    @Column(name = "nurse_id")
+    private Long nurseId;
+
+    @Convert(converter = CallStatusConverter.class)
+    @Column
+    private CallStatus status;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "escalation_level")
+    private Integer escalationLevel;
+
+    @Column(name = "escalated_at")
+    private LocalDateTime escalatedAt;
+
+    @Column(name = "acknowledged_at")
+    private LocalDateTime acknowledgedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getBedId() { return bedId; }
+    public void setBedId(Long bedId) { this.bedId = bedId; }
+
+    public Long getIslandId() { return islandId; }
+    public void setIslandId(Long islandId) { this.islandId = islandId; }
+
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public Long getNurseId() { return nurseId; }
+    public void setNurseId(Long nurseId) { this.nurseId = nurseId; }
+
+    public CallStatus getStatus() { return status; }
+    public void setStatus(CallStatus status) { this.status = status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public Integer getEscalationLevel() { return escalationLevel; }
+    public void setEscalationLevel(Integer escalationLevel) { this.escalationLevel = escalationLevel; }
+
+    public LocalDateTime getEscalatedAt() { return escalatedAt; }
+    public void setEscalatedAt(LocalDateTime escalatedAt) { this.escalatedAt = escalatedAt; }
+
+    public LocalDateTime getAcknowledgedAt() { return acknowledgedAt; }
+    public void setAcknowledgedAt(LocalDateTime acknowledgedAt) { this.acknowledgedAt = acknowledgedAt; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
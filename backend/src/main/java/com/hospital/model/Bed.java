@@ -3,6 +3,8 @@ package com.hospital.model;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore; // <--- IMPORTANTE
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "beds")
 public class Bed {
@@ -31,6 +33,12 @@ public class Bed {
     @Column(columnDefinition = "TEXT")
     private String qrCodeData;
 
+    // Último llamado aceptado; se reclama con un UPDATE condicional para que
+    // el enfriamiento sea atómico entre instancias y sobreviva a reinicios
+    @JsonIgnore
+    @Column
+    private LocalDateTime lastCallAt;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -79,4 +87,12 @@ public class Bed {
     public void setQrCodeData(String qrCodeData) {
         this.qrCodeData = qrCodeData;
     }
+
+    public LocalDateTime getLastCallAt() {
+        return lastCallAt;
+    }
+
+    public void setLastCallAt(LocalDateTime lastCallAt) {
+        this.lastCallAt = lastCallAt;
+    }
 }
@@ -4,10 +4,20 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "calls")
+@Table(name = "calls", indexes = {
+    @Index(name = "idx_calls_nurse_status_created", columnList = "nurse_id, status, created_at"),
+    @Index(name = "idx_calls_bed_status_created", columnList = "bed_id, status, created_at"),
+    @Index(name = "idx_calls_status_created", columnList = "status, created_at")
+})
 public class Call {
+    // Secuencia con reserva de bloques (pooled): el id se conoce sin insertar, lo que permite
+    // insertar los llamados en lote (IDENTITY obliga a un INSERT inmediato por fila).
+    // En MySQL, sin secuencias, Hibernate la emula con la tabla calls_seq.
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "calls_seq")
+    @SequenceGenerator(name = "calls_seq", sequenceName = "calls_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne
@@ -22,8 +32,10 @@ public class Call {
     @JoinColumn(name = "nurse_id")
     private Nurse nurse;
 
-    @Column
-    private String status; // ACTIVE, ACKNOWLEDGED, EXPIRED
+    // Código numérico (CallStatusConverter); los llamados abiertos también están en active_calls
+    @Convert(converter = CallStatusConverter.class)
+    @Column(nullable = false)
+    private CallStatus status;
 
     @Column
     private LocalDateTime createdAt;
@@ -31,6 +43,23 @@ public class Call {
     @Column
     private LocalDateTime expiresAt;
 
+    // Número de saltos de escalamiento y momento del último (ver call_escalations)
+    @Column
+    private Integer escalationLevel = 0;
+
+    @Column
+    private LocalDateTime escalatedAt;
+
+    // Momento del reconocimiento (tiempo de respuesta = acknowledgedAt - createdAt)
+    @Column
+    private LocalDateTime acknowledgedAt;
+
+    // Bloqueo optimista: dos reconocimientos concurrentes del mismo llamado no pueden ganar ambos.
+    // Los UPDATE masivos (vencimiento, reconocimiento en lote) la incrementan a mano.
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -43,12 +72,31 @@ public class Call {
     public Nurse getNurse() { return nurse; }
     public void setNurse(Nurse nurse) { this.nurse = nurse; }
 
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public CallStatus getStatus() { return status; }
+
+    // Solo transiciones válidas (ver CallStatus.canTransitionTo); el estado inicial se asigna libre
+    public void setStatus(CallStatus status) {
+        if (this.status != null && !this.status.canTransitionTo(status)) {
+            throw new RuntimeException("Transición de estado no permitida: " + this.status + " -> " + status);
+        }
+        this.status = status;
+    }
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
     public LocalDateTime getExpiresAt() { return expiresAt; }
     public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public Integer getEscalationLevel() { return escalationLevel; }
+    public void setEscalationLevel(Integer escalationLevel) { this.escalationLevel = escalationLevel; }
+
+    public LocalDateTime getEscalatedAt() { return escalatedAt; }
+    public void setEscalatedAt(LocalDateTime escalatedAt) { this.escalatedAt = escalatedAt; }
+
+    public LocalDateTime getAcknowledgedAt() { return acknowledgedAt; }
+    public void setAcknowledgedAt(LocalDateTime acknowledgedAt) { this.acknowledgedAt = acknowledgedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
@@ -0,0 +1,55 @@
+package com.hospital.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Un salto de escalamiento de un llamado no atendido (historial con marcas de tiempo)
+@Entity
+@Table(name = "call_escalations")
+public class CallEscalation {
+    public static final String TARGET_NURSE = "NURSE";
+    public static final String TARGET_ADMIN = "ADMIN";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "call_id", nullable = false)
+    private Long callId;
+
+    @Column(nullable = false)
+    private Integer hop;
+
+    @Column(name = "from_nurse_id")
+    private Long fromNurseId;
+
+    @Column(name = "to_nurse_id")
+    private Long toNurseId; // null cuando se escala a administración
+
+    @Column(nullable = false, length = 16)
+    private String target; // NURSE, ADMIN
+
+    @Column(nullable = false)
+    private LocalDateTime escalatedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getCallId() { return callId; }
+    public void setCallId(Long callId) { this.callId = callId; }
+
+    public Integer getHop() { return hop; }
+    public void setHop(Integer hop) { this.hop = hop; }
+
+    public Long getFromNurseId() { return fromNurseId; }
+    public void setFromNurseId(Long fromNurseId) { this.fromNurseId = fromNurseId; }
+
+    public Long getToNurseId() { return toNurseId; }
+    public void setToNurseId(Long toNurseId) { this.toNurseId = toNurseId; }
+
+    public String getTarget() { return target; }
+    public void setTarget(String target) { this.target = target; }
+
+    public LocalDateTime getEscalatedAt() { return escalatedAt; }
+    public void setEscalatedAt(LocalDateTime escalatedAt) { this.escalatedAt = escalatedAt; }
+}
@@ -0,0 +1,42 @@
+package com.hospital.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Idempotency-Key de un POST /api/calls ya confirmado. Se inserta en la misma transacción que
+// el llamado, así un reintento que llega a otra instancia (o después de un reinicio) recibe la
+// respuesta original en lugar de crear otro llamado.
+@Entity
+@Table(name = "call_idempotency_keys", indexes = @Index(name = "idx_call_idem_created", columnList = "created_at"))
+public class CallIdempotencyKey {
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    @Column(name = "bed_id", nullable = false)
+    private Long bedId;
+
+    @Column(name = "call_id", nullable = false)
+    private Long callId;
+
+    @Column(name = "call_created_at")
+    private LocalDateTime callCreatedAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public Long getBedId() { return bedId; }
+    public void setBedId(Long bedId) { this.bedId = bedId; }
+
+    public Long getCallId() { return callId; }
+    public void setCallId(Long callId) { this.callId = callId; }
+
+    public LocalDateTime getCallCreatedAt() { return callCreatedAt; }
+    public void setCallCreatedAt(LocalDateTime callCreatedAt) { this.callCreatedAt = callCreatedAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
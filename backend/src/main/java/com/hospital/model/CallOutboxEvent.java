@@ -0,0 +1,60 @@
+package com.hospital.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Evento de ciclo de vida de un llamado, escrito en la misma transacción que la fila de calls.
+// El bus de eventos lo reparte después (SSE en cada nodo, push en uno) y lo borra cuando
+// todos los consumidores lo entregaron.
+@Entity
+@Table(name = "call_outbox")
+public class CallOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String eventType;
+
+    @Column(name = "call_id")
+    private Long callId;
+
+    @Column(name = "nurse_id")
+    private Long nurseId;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload; // CallEvent en JSON
+
+    @Column(length = 255)
+    private String pushTitle;
+
+    @Column(length = 1000)
+    private String pushBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+
+    public Long getCallId() { return callId; }
+    public void setCallId(Long callId) { this.callId = callId; }
+
+    public Long getNurseId() { return nurseId; }
+    public void setNurseId(Long nurseId) { this.nurseId = nurseId; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public String getPushTitle() { return pushTitle; }
+    public void setPushTitle(String pushTitle) { this.pushTitle = pushTitle; }
+
+    public String getPushBody() { return pushBody; }
+    public void setPushBody(String pushBody) { this.pushBody = pushBody; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,38 @@
+package com.hospital.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Estado de un llamado. En la BD se guarda el código numérico (smallint, ver CallStatusConverter);
+// en JSON sigue saliendo el nombre ("ACTIVE", ...).
+// Transiciones válidas: ACTIVE -> ACKNOWLEDGED | EXPIRED; los estados cerrados son finales.
+public enum CallStatus {
+    ACTIVE(1),
+    ACKNOWLEDGED(2),
+    EXPIRED(3);
+
+    public static final Set<CallStatus> CLOSED = EnumSet.of(ACKNOWLEDGED, EXPIRED);
+
+    private final short code;
+
+    CallStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public boolean canTransitionTo(CallStatus next) {
+        return this == ACTIVE && next != ACTIVE;
+    }
+
+    public static CallStatus fromCode(short code) {
+        for (CallStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Código de estado de llamado desconocido: " + code);
+    }
+}
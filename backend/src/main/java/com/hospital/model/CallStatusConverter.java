@@ -0,0 +1,20 @@
+package com.hospital.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// CallStatus <-> código smallint de calls.status / calls_archive.status. Se usa el código y no
+// el ordinal para que reordenar o agregar estados no cambie el significado de filas existentes.
+@Converter
+public class CallStatusConverter implements AttributeConverter<CallStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(CallStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public CallStatus convertToEntityAttribute(Short code) {
+        return code != null ? CallStatus.fromCode(code) : null;
+    }
+}
@@ -5,9 +5,12 @@ import java.util.List;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore; // <--- IMPORTANTE
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
 @Table(name = "nurses")
+// Call.nurse puede ser una referencia perezosa (getReferenceById); no serializar el proxy de Hibernate
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Nurse {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
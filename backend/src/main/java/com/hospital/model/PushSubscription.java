@@ -16,6 +16,10 @@ public class PushSubscription {
     @Column(columnDefinition = "text")
     private String endpoint;
 
+    // SHA-256 en hex del endpoint: una fila por endpoint (ver PushSubscriptionRegistry)
+    @Column(name = "endpoint_hash", length = 64, nullable = false, unique = true)
+    private String endpointHash;
+
     @Column(name = "p256dh")
     private String p256dh;
 
@@ -31,6 +35,9 @@ public class PushSubscription {
     public String getEndpoint() { return endpoint; }
     public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
 
+    public String getEndpointHash() { return endpointHash; }
+    public void setEndpointHash(String endpointHash) { this.endpointHash = endpointHash; }
+
     public String getP256dh() { return p256dh; }
     public void setP256dh(String p256dh) { this.p256dh = p256dh; }
 
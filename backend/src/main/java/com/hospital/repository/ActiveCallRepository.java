@@ -0,0 +1,38 @@
+package com.hospital.repository;
+
+import com.hospital.model.ActiveCall;
+import com.hospital.model.Call;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ActiveCallRepository extends JpaRepository<ActiveCall, Long> {
+    // Llamados abiertos de un enfermero, más recientes primero (idx_active_calls_nurse_created + PK de calls)
+    @Query("select a.call from ActiveCall a where a.nurseId = :nurseId order by a.createdAt desc")
+    List<Call> findCallsByNurseId(@Param("nurseId") Long nurseId);
+
+    @Query("select a.callId from ActiveCall a where a.bedId = :bedId")
+    List<Long> findCallIdsByBedId(@Param("bedId") Long bedId);
+
+    // (callId, expiresAt) de todos los abiertos, para reconstruir los temporizadores de vencimiento
+    @Query("select a.callId, a.expiresAt from ActiveCall a")
+    List<Object[]> findAllExpiryClocks();
+
+    // (callId, createdAt, escalatedAt) de todos los abiertos, para reprogramar escalamientos
+    @Query("select c.id, c.createdAt, c.escalatedAt from ActiveCall a join a.call c")
+    List<Object[]> findAllEscalationClocks();
+
+    @Modifying
+    @Query("update ActiveCall a set a.nurseId = :nurseId where a.callId = :callId")
+    int reassign(@Param("callId") Long callId, @Param("nurseId") Long nurseId);
+
+    @Modifying
+    @Query("delete from ActiveCall a where a.callId in :callIds")
+    int deleteByCallIds(@Param("callIds") Collection<Long> callIds);
+}
@@ -2,9 +2,14 @@ package com.hospital.repository;
 
 import com.hospital.model.Bed;
 import com.hospital.model.Island;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +18,23 @@ public interface BedRepository extends JpaRepository<Bed, Long> {
     List<Bed> findByIsland(Island island);
     Optional<Bed> findByBedNumberAndIsland(String bedNumber, Island island);
     Optional<Bed> findByQrCode(String qrCode);
+
+    @Query("select b.id, b.island.id from Bed b")
+    List<Object[]> findAllBedIslandIds();
+
+    // [id, bedNumber] de las camas de una isla con id mayor que afterId, en orden de id (una página),
+    // sin cargar entidades
+    @Query("select b.id, b.bedNumber from Bed b where b.island.id = :islandId and b.id > :afterId order by b.id")
+    List<Object[]> findIdAndNumberByIslandIdAfter(@Param("islandId") Long islandId, @Param("afterId") Long afterId, Pageable page);
+
+    // Devuelve 1 solo si la cama no tuvo un llamado aceptado después de 'threshold'
+    @Modifying
+    @Query("update Bed b set b.lastCallAt = :now where b.id = :bedId and (b.lastCallAt is null or b.lastCallAt < :threshold)")
+    int claimCallSlot(@Param("bedId") Long bedId, @Param("now") LocalDateTime now, @Param("threshold") LocalDateTime threshold);
+
+    @Modifying
+    @Query("update Bed b set b.lastCallAt = null where b.id = :bedId")
+    int releaseCallSlot(@Param("bedId") Long bedId);
 }
 
 
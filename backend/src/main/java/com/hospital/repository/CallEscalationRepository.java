@@ -0,0 +1,14 @@
+package com.hospital.repository;
+
+import com.hospital.model.CallEscalation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CallEscalationRepository extends JpaRepository<CallEscalation, Long> {
+    List<CallEscalation> findByCallIdOrderByHopAsc(Long callId);
+    List<CallEscalation> findByCallIdInOrderByHopAsc(Collection<Long> callIds);
+}
@@ -0,0 +1,19 @@
+package com.hospital.repository;
+
+import com.hospital.model.CallIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CallIdempotencyKeyRepository extends JpaRepository<CallIdempotencyKey, String> {
+    @Modifying
+    @Transactional
+    @Query("delete from CallIdempotencyKey k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,24 @@
+package com.hospital.repository;
+
+import com.hospital.model.CallOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CallOutboxRepository extends JpaRepository<CallOutboxEvent, Long> {
+    List<CallOutboxEvent> findTop200ByIdGreaterThanOrderByIdAsc(Long id);
+
+    boolean existsByIdGreaterThan(Long id);
+
+    @Query("select coalesce(max(e.id), 0) from CallOutboxEvent e")
+    Long findMaxId();
+
+    @Modifying
+    @Query("delete from CallOutboxEvent e where e.id <= :position")
+    int deleteUpTo(@Param("position") Long position);
+}
@@ -1,17 +1,49 @@
 package com.hospital.repository;
 
 import com.hospital.model.Call;
+import com.hospital.model.CallStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CallRepository extends JpaRepository<Call, Long> {
-    List<Call> findByNurseIdAndStatus(Long nurseId, String status);
-    List<Call> findByNurseIdAndStatusIn(Long nurseId, java.util.List<String> statuses);
-    List<Call> findByBedIdAndStatusOrderByCreatedAtDesc(Long bedId, String status);
-    List<Call> findByNurseIdAndStatusOrderByCreatedAtDesc(Long nurseId, String status);
-    List<Call> findByCreatedAtAfter(LocalDateTime since);
+    // Llamados abiertos: ver ActiveCallRepository; historial por rango (con el archivo): CallRetentionService.getHistory
+
+    // (createdAt, acknowledgedAt, nurseId, islandId) de los reconocidos desde 'since', para las métricas de respuesta
+    @Query("select c.createdAt, c.acknowledgedAt, c.nurse.id, b.island.id from Call c left join c.bed b " +
+           "where c.acknowledgedAt is not null and c.createdAt >= :since")
+    List<Object[]> findAckTimesSince(@Param("since") LocalDateTime since);
+
+    // (id, status) sin cargar el grafo del llamado
+    @Query("select c.id, c.status from Call c where c.id in :ids")
+    List<Object[]> findStatusByIdIn(@Param("ids") List<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Call c where c.id in :ids and c.status = :status")
+    List<Call> lockByIdInAndStatus(@Param("ids") List<Long> ids, @Param("status") CallStatus status);
+
+    // ids de llamados cerrados anteriores al corte, en orden de id (un lote de archivado)
+    @Query("select c.id from Call c where c.status in :statuses and c.createdAt < :cutoff order by c.id")
+    List<Long> findIdsClosedBefore(@Param("statuses") Collection<CallStatus> statuses, @Param("cutoff") LocalDateTime cutoff, Pageable page);
+
+    // Los UPDATE masivos incrementan version: un reconocimiento individual en curso falla por conflicto
+    @Modifying
+    @Query("update Call c set c.status = :newStatus, c.version = c.version + 1 where c.id in :ids and c.status = :expected")
+    int updateStatusByIdIn(@Param("ids") List<Long> ids, @Param("expected") CallStatus expected, @Param("newStatus") CallStatus newStatus);
+
+    @Modifying
+    @Query("update Call c set c.status = :acknowledged, c.acknowledgedAt = :now, c.version = c.version + 1 " +
+           "where c.id in :ids and c.status = :active")
+    int acknowledgeByIdIn(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now,
+                          @Param("active") CallStatus active, @Param("acknowledged") CallStatus acknowledged);
 }
@@ -3,8 +3,10 @@ package com.hospital.repository;
 import com.hospital.model.Nurse;
 import com.hospital.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +18,15 @@ public interface NurseRepository extends JpaRepository<Nurse, Long> {
     // Este método permite buscar al enfermero usando el ID del LOGIN (Usuario 5)
     // en lugar del ID de la tabla de enfermeros (Enfermero 2).
     Optional<Nurse> findByUserId(Long userId);
+
+    // Proyecciones (nurseId, bedId) / (nurseId, islandId) para el índice de enrutamiento
+    @Query("select n.id, b.id from Nurse n join n.assignedBeds b")
+    List<Object[]> findAllBedAssignments();
+
+    @Query("select n.id, i.id from Nurse n join n.assignedIslands i")
+    List<Object[]> findAllIslandAssignments();
+
+    // (nurseId, userId) para resolver el id de login sin consultar en cada sondeo
+    @Query("select n.id, n.user.id from Nurse n")
+    List<Object[]> findAllUserIds();
 }
\ No newline at end of file
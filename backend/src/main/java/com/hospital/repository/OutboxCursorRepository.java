@@ -0,0 +1,27 @@
+package com.hospital.repository;
+
+import com.hospital.model.OutboxCursor;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface OutboxCursorRepository extends JpaRepository<OutboxCursor, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from OutboxCursor c where c.consumer = :consumer")
+    Optional<OutboxCursor> lockByConsumer(@Param("consumer") String consumer);
+
+    @Query("select min(c.position) from OutboxCursor c")
+    Long findMinPosition();
+
+    @Modifying
+    @Query("delete from OutboxCursor c where c.consumer like :prefix and c.updatedAt < :aliveSince")
+    int deleteStale(@Param("prefix") String prefix, @Param("aliveSince") LocalDateTime aliveSince);
+}
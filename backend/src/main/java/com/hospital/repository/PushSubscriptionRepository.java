@@ -2,11 +2,19 @@ package com.hospital.repository;
 
 import com.hospital.model.PushSubscription;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PushSubscriptionRepository extends JpaRepository<PushSubscription, Long> {
     List<PushSubscription> findByNurseId(Long nurseId);
+
+    Optional<PushSubscription> findByEndpointHash(String endpointHash);
+
+    // Carga del registro al arrancar: [id, nurseId, endpoint, p256dh, auth]
+    @Query("select s.id, s.nurse.id, s.endpoint, s.p256dh, s.auth from PushSubscription s where s.nurse is not null")
+    List<Object[]> findAllKeys();
 }
@@ -0,0 +1,244 @@
+package com.hospital.security;
+
+import com.hospital.util.TokenBucketLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Límite de peticiones para los endpoints públicos (POST /api/calls y /api/qr/**), antes de
+// JwtAuthenticationFilter: un kiosco defectuoso o un bucle de escaneos no debe acaparar el pool
+// de la BD. Dos token buckets: por IP del cliente y por cama (de la ruta del QR o del campo
+// bedId del cuerpo). Al rechazar responde 429 con Retry-After.
+// Detrás de un balanceador, getRemoteAddr es la IP real solo con server.forward-headers-strategy.
+// Se ejecuta dentro de la cadena de seguridad; SecurityConfig desactiva su registro automático
+// como filtro del contenedor para que no corra dos veces.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String CALLS_PATH = "/api/calls";
+    private static final String QR_PREFIX = "/api/qr/";
+    private static final String[] QR_BED_PREFIXES = {"/api/qr/bed/", "/api/qr/token/bed/"};
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final int STRIPES = 64;
+
+    @Value("${ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ratelimit.ip.burst:100}")
+    private int ipBurst;
+
+    @Value("${ratelimit.ip.per-second:20}")
+    private double ipPerSecond;
+
+    @Value("${ratelimit.bed.burst:10}")
+    private int bedBurst;
+
+    @Value("${ratelimit.bed.per-second:1}")
+    private double bedPerSecond;
+
+    @Value("${ratelimit.max-keys:100000}")
+    private int maxKeys;
+
+    private TokenBucketLimiter ipLimiter;
+    private TokenBucketLimiter bedLimiter;
+
+    @PostConstruct
+    public void init() {
+        ipLimiter = new TokenBucketLimiter(ipBurst, ipPerSecond, maxKeys, STRIPES);
+        bedLimiter = new TokenBucketLimiter(bedBurst, bedPerSecond, maxKeys, STRIPES);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        return !(path.startsWith(QR_PREFIX) || (CALLS_PATH.equals(path) && "POST".equals(request.getMethod())));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long now = System.nanoTime();
+        long waitNanos = ipLimiter.tryAcquire(request.getRemoteAddr(), now);
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+
+        HttpServletRequest chainRequest = request;
+        String bedId;
+        String path = request.getRequestURI();
+        if (path.startsWith(QR_PREFIX)) {
+            bedId = bedIdFromPath(path);
+        } else {
+            // el cuerpo se lee aquí una vez y se vuelve a servir al controlador
+            byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+                return;
+            }
+            chainRequest = new CachedBodyRequest(request, body);
+            bedId = bedIdFromJson(body);
+        }
+        if (bedId != null) {
+            waitNanos = bedLimiter.tryAcquire(bedId, now);
+            if (waitNanos > 0) {
+                reject(response, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(chainRequest, response);
+    }
+
+    public Map<String, Object> getStats(int top) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ip", limiterStats(ipLimiter, ipBurst, ipPerSecond, top));
+        stats.put("bed", limiterStats(bedLimiter, bedBurst, bedPerSecond, top));
+        return stats;
+    }
+
+    private static Map<String, Object> limiterStats(TokenBucketLimiter limiter, int burst, double perSecond, int top) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("burst", burst);
+        m.put("perSecond", perSecond);
+        m.put("keys", limiter.size());
+        m.put("allowed", limiter.allowedCount());
+        m.put("rejected", limiter.rejectedCount());
+        m.put("topRejected", limiter.topRejected(top));
+        return m;
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"Too Many Requests\", \"retryAfter\":" + retryAfterSeconds + "}");
+    }
+
+    private static String bedIdFromPath(String path) {
+        for (String prefix : QR_BED_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                int end = prefix.length();
+                while (end < path.length() && Character.isDigit(path.charAt(end))) {
+                    end++;
+                }
+                return end > prefix.length() ? path.substring(prefix.length(), end) : null;
+            }
+        }
+        return null;
+    }
+
+    // Busca "bedId": <número> sin deserializar el JSON completo
+    static String bedIdFromJson(byte[] body) {
+        byte[] field = {'"', 'b', 'e', 'd', 'I', 'd', '"'};
+        outer:
+        for (int i = 0; i <= body.length - field.length; i++) {
+            for (int j = 0; j < field.length; j++) {
+                if (body[i + j] != field[j]) {
+                    continue outer;
+                }
+            }
+            int p = i + field.length;
+            while (p < body.length && (body[p] == ' ' || body[p] == ':' || body[p] == '"' || body[p] == '\t')) {
+                p++;
+            }
+            int start = p;
+            while (p < body.length && body[p] >= '0' && body[p] <= '9') {
+                p++;
+            }
+            return p > start ? new String(body, start, p - start, StandardCharsets.US_ASCII) : null;
+        }
+        return null;
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            InputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    try {
+                        return in.available() == 0;
+                    } catch (IOException e) {
+                        return true;
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // El cuerpo ya está en memoria: todo está disponible de inmediato
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    if (listener == null) {
+                        throw new NullPointerException("listener");
+                    }
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.hospital.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tabla de enfriamiento por cama en memoria. Cada cama tiene su propio AtomicLong
+// (el ConcurrentHashMap reparte las camas en segmentos independientes), así que dos
+// pulsaciones simultáneas compiten por un CAS y solo una gana, sin bloqueos.
+// La garantía entre reinicios / varias instancias la da la columna beds.last_call_at.
+@Component
+public class BedCallCooldown {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<Long, AtomicLong> lastCallNanos = new ConcurrentHashMap<>();
+
+    // Devuelve el sello de la reserva, o FREE si la cama sigue en enfriamiento
+    public long tryAcquire(Long bedId, long cooldownNanos) {
+        AtomicLong slot = lastCallNanos.computeIfAbsent(bedId, k -> new AtomicLong(FREE));
+        while (true) {
+            long last = slot.get();
+            long now = System.nanoTime();
+            if (last != FREE && now - last < cooldownNanos) {
+                return FREE;
+            }
+            long stamp = now == FREE ? now + 1 : now;
+            if (slot.compareAndSet(last, stamp)) {
+                return stamp;
+            }
+        }
+    }
+
+    public boolean isAcquired(long stamp) {
+        return stamp != FREE;
+    }
+
+    // Libera la reserva solo si sigue siendo la nuestra (p. ej. rollback de la transacción)
+    public void release(Long bedId, long stamp) {
+        AtomicLong slot = lastCallNanos.get(bedId);
+        if (slot != null) {
+            slot.compareAndSet(stamp, FREE);
+        }
+    }
+
+    // Cama que no existe: se quita la entrada para que ids inventados no hagan crecer la tabla
+    public void forget(Long bedId, long stamp) {
+        lastCallNanos.computeIfPresent(bedId, (k, slot) -> slot.get() == stamp ? null : slot);
+    }
+
+    // El llamado activo de la cama fue atendido: se permite uno nuevo de inmediato
+    public void clear(Long bedId) {
+        AtomicLong slot = lastCallNanos.get(bedId);
+        if (slot != null) {
+            slot.set(FREE);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallEvent;
+import com.hospital.model.Call;
+import com.hospital.model.CallEscalation;
+import com.hospital.model.CallStatus;
+import com.hospital.repository.ActiveCallRepository;
+import com.hospital.repository.CallEscalationRepository;
+import com.hospital.repository.CallRepository;
+import com.hospital.repository.NurseRepository;
+import com.hospital.util.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Escalamiento de llamados no atendidos: si el enfermero no confirma (/ack) dentro de la
+// ventana configurada, el llamado pasa al siguiente enfermero de la misma isla y, cuando
+// ya no quedan, a administración. Los plazos viven en una rueda de temporización (sin
+// consultas periódicas); solo se toca la BD cuando un plazo vence de verdad.
+// Varias instancias: cada nodo tiene en su rueda todos los llamados abiertos (desde la BD al
+// arrancar y luego por los CALL_CREATED del bus), así que uno creado en un nodo que se cae igual
+// escala. El salto se reclama bajo el bloqueo de fila: si escalated_at (o created_at) dice que el
+// plazo todavía no venció, otro nodo ya escaló ese salto y aquí solo se reprograma. Supone relojes
+// sincronizados entre nodos (NTP).
+@Component
+public class CallEscalationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallEscalationEngine.class);
+    // Reintento de un lote cuya transacción falló (BD caída, deadlock...)
+    private static final long RETRY_DELAY_MS = 5000;
+
+    @Autowired
+    private CallRepository callRepository;
+
+    @Autowired
+    private ActiveCallRepository activeCallRepository;
+
+    @Autowired
+    private CallEscalationRepository escalationRepository;
+
+    @Autowired
+    private NurseRepository nurseRepository;
+
+    @Autowired
+    private NurseRoutingIndex routingIndex;
+
+    @Autowired
+    private CallOutbox callOutbox;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CallEventBus eventBus;
+
+    @Value("${calls.escalation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${calls.escalation.ack-timeout-seconds:60}")
+    private long ackTimeoutSeconds;
+
+    private HashedTimingWheel<Long> wheel;
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimingWheel<>("call-escalation", 1000, 512, this::escalate);
+        eventBus.addListener(this::onCallEvent);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        List<Object[]> active = activeCallRepository.findAllEscalationClocks();
+        Set<Long> finished = escalationRepository.findByCallIdInOrderByHopAsc(
+                active.stream().map(row -> (Long) row[0]).collect(Collectors.toList())).stream()
+            .filter(e -> CallEscalation.TARGET_ADMIN.equals(e.getTarget()))
+            .map(CallEscalation::getCallId)
+            .collect(Collectors.toSet());
+        for (Object[] row : active) {
+            Long callId = (Long) row[0];
+            if (finished.contains(callId)) {
+                continue;
+            }
+            LocalDateTime since = row[2] != null ? (LocalDateTime) row[2] : (LocalDateTime) row[1];
+            wheel.schedule(callId, deadline(since != null ? since : LocalDateTime.now()));
+        }
+        wheel.start();
+        logger.info("Call escalation engine started: {} pending deadlines, ack timeout {}s", wheel.pending(), ackTimeoutSeconds);
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+    }
+
+    public void scheduleAfterCommit(Long callId, LocalDateTime since) {
+        if (enabled) {
+            afterCommit(() -> wheel.schedule(callId, deadline(since)));
+        }
+    }
+
+    public void cancelAfterCommit(Long callId) {
+        afterCommit(() -> wheel.cancel(callId));
+    }
+
+    public void cancel(List<Long> callIds) {
+        callIds.forEach(wheel::cancel);
+    }
+
+    public int pending() {
+        return wheel.pending();
+    }
+
+    // Llamados de cualquier nodo: el creado se programa aquí también (si lo creó este nodo, el
+    // plazo es el mismo); el cerrado se quita de la rueda
+    private void onCallEvent(CallEvent event) {
+        if (!enabled || event.getCallId() == null) {
+            return;
+        }
+        if (CallEvent.CREATED.equals(event.getType()) && event.getCreatedAt() != null) {
+            wheel.schedule(event.getCallId(), deadline(event.getCreatedAt()));
+        } else if (CallEvent.ACKNOWLEDGED.equals(event.getType()) || CallEvent.EXPIRED.equals(event.getType())) {
+            wheel.cancel(event.getCallId());
+        }
+    }
+
+    private void escalate(List<Long> callIds) {
+        // id -> nuevo plazo (siguiente salto, o el plazo real si otro nodo ya escaló este)
+        Map<Long, Long> rescheduled = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        try {
+            escalateBatch(callIds, now, rescheduled);
+        } catch (RuntimeException e) {
+            // los ids ya salieron de la rueda: sin volver a programarlos no escalarían nunca
+            logger.error("Escalation batch of {} calls failed, retrying in {} ms", callIds.size(), RETRY_DELAY_MS, e);
+            long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+            callIds.forEach(id -> wheel.schedule(id, retryAt));
+            return;
+        }
+
+        rescheduled.forEach(wheel::schedule);
+    }
+
+    private void escalateBatch(List<Long> callIds, LocalDateTime now, Map<Long, Long> rescheduled) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // solo llamados que siguen activos (un ack concurrente queda bloqueado detrás)
+            List<Call> calls = callRepository.lockByIdInAndStatus(callIds, CallStatus.ACTIVE);
+            if (calls.isEmpty()) {
+                return;
+            }
+            Map<Long, List<CallEscalation>> history = escalationRepository.findByCallIdInOrderByHopAsc(
+                    calls.stream().map(Call::getId).collect(Collectors.toList())).stream()
+                .collect(Collectors.groupingBy(CallEscalation::getCallId));
+
+            for (Call call : calls) {
+                List<CallEscalation> hops = history.getOrDefault(call.getId(), List.of());
+                if (hops.stream().anyMatch(h -> CallEscalation.TARGET_ADMIN.equals(h.getTarget()))) {
+                    continue; // ya está en administración: no hay siguiente salto
+                }
+                // reclamo del salto: con la fila bloqueada, el plazo se mide desde lo que dice la BD
+                LocalDateTime since = call.getEscalatedAt() != null ? call.getEscalatedAt() : call.getCreatedAt();
+                if (since != null && since.plusSeconds(ackTimeoutSeconds).isAfter(now)) {
+                    rescheduled.put(call.getId(), deadline(since));
+                    continue;
+                }
+                Long currentNurseId = call.getNurse() != null ? call.getNurse().getId() : null;
+                Set<Long> visited = new HashSet<>();
+                if (currentNurseId != null) {
+                    visited.add(currentNurseId);
+                }
+                hops.forEach(h -> {
+                    if (h.getFromNurseId() != null) visited.add(h.getFromNurseId());
+                    if (h.getToNurseId() != null) visited.add(h.getToNurseId());
+                });
+
+                Long islandId = call.getBed() != null && call.getBed().getIsland() != null
+                    ? call.getBed().getIsland().getId() : null;
+                Long nextNurseId = islandId != null ? nextNurse(routingIndex.getNurseIdsForIsland(islandId), currentNurseId, visited) : null;
+                int level = (call.getEscalationLevel() != null ? call.getEscalationLevel() : 0) + 1;
+
+                CallEscalation hop = new CallEscalation();
+                hop.setCallId(call.getId());
+                hop.setHop(level);
+                hop.setFromNurseId(currentNurseId);
+                hop.setToNurseId(nextNurseId);
+                hop.setTarget(nextNurseId != null ? CallEscalation.TARGET_NURSE : CallEscalation.TARGET_ADMIN);
+                hop.setEscalatedAt(now);
+                escalationRepository.save(hop);
+
+                call.setEscalationLevel(level);
+                call.setEscalatedAt(now);
+
+                CallEvent previous = CallEvent.from(call, CallEvent.REASSIGNED);
+                if (nextNurseId != null) {
+                    call.setNurse(nurseRepository.getReferenceById(nextNurseId));
+                    activeCallRepository.reassign(call.getId(), nextNurseId);
+                    rescheduled.put(call.getId(), deadline(now));
+                }
+                CallEvent escalated = CallEvent.from(call, CallEvent.ESCALATED);
+                if (nextNurseId != null) {
+                    escalated.setNurseId(nextNurseId);
+                    String body = String.format("%s en cama %s lleva %d s sin atención.",
+                        escalated.getPatientName(), escalated.getBedNumber(), ackTimeoutSeconds * level);
+                    callOutbox.record(escalated, "Llamado escalado", body);
+                    if (currentNurseId != null) {
+                        callOutbox.record(previous, null, null);
+                    }
+                } else {
+                    escalated.setNurseId(CallStreamHub.ADMIN_CHANNEL);
+                    callOutbox.record(escalated, null, null);
+                }
+                logger.info("Call {} escalated (hop {}) from nurse {} to {}", call.getId(), level, currentNurseId,
+                    nextNurseId != null ? "nurse " + nextNurseId : "admin");
+            }
+        });
+    }
+
+    // Siguiente enfermero de la isla después del actual (en orden circular), sin repetir
+    private static Long nextNurse(List<Long> islandNurses, Long currentNurseId, Set<Long> visited) {
+        if (islandNurses.isEmpty()) {
+            return null;
+        }
+        int start = currentNurseId != null ? islandNurses.indexOf(currentNurseId) + 1 : 0;
+        for (int i = 0; i < islandNurses.size(); i++) {
+            Long candidate = islandNurses.get((start + i) % islandNurses.size());
+            if (!visited.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private long deadline(LocalDateTime since) {
+        return since.plusSeconds(ackTimeoutSeconds).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallEvent;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Reparte los eventos de llamados ya confirmados (call_outbox) entre todas las instancias del
+// backend: cada nodo entrega todos los eventos a sus propias conexiones SSE y el push de cada
+// evento se envía una sola vez en el clúster. La implementación por defecto sondea la base de
+// datos (DbPollingCallEventBus); una con broker se elige con calls.bus.type.
+public interface CallEventBus {
+
+    // Este nodo acaba de confirmar eventos nuevos en el outbox
+    void wakeUp();
+
+    // Recibe cada evento de llamado que llega a este nodo, lo haya producido este u otro nodo
+    // (temporizadores de vencimiento y escalamiento de llamados creados en otra instancia)
+    void addListener(Consumer<CallEvent> listener);
+
+    Map<String, Object> getStats();
+}
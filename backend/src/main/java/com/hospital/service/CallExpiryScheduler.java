@@ -0,0 +1,167 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallEvent;
+import com.hospital.model.Call;
+import com.hospital.model.CallStatus;
+import com.hospital.repository.ActiveCallRepository;
+import com.hospital.repository.CallRepository;
+import com.hospital.util.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+// Mueve los llamados ACTIVE a EXPIRED cuando vence su expiresAt.
+// Cada llamado se programa en una rueda de temporización al crearse; en cada tick
+// los vencidos se cierran con un UPDATE agrupado y se avisa por SSE al enfermero.
+// Cada nodo programa todos los llamados abiertos (los de otros nodos llegan como CALL_CREATED
+// por el bus): si el nodo que creó el llamado se cae, otro lo vence. El bloqueo de fila y el
+// filtro por ACTIVE hacen que solo uno lo cierre.
+@Component
+public class CallExpiryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallExpiryScheduler.class);
+    private static final int BATCH_SIZE = 500;
+    // Reintento de un lote cuya transacción falló (BD caída, deadlock...)
+    private static final long RETRY_DELAY_MS = 5000;
+
+    @Autowired
+    private CallRepository callRepository;
+
+    @Autowired
+    private ActiveCallRepository activeCallRepository;
+
+    @Autowired
+    private CallOutbox callOutbox;
+
+    @Autowired
+    private CallEscalationEngine escalationEngine;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CallEventBus eventBus;
+
+    @Value("${calls.expiry.tick-ms:1000}")
+    private long tickMillis;
+
+    private HashedTimingWheel<Long> wheel;
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimingWheel<>("call-expiry", tickMillis, 512, this::expire);
+        eventBus.addListener(this::onCallEvent);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // reconstruir desde active_calls: los ya vencidos se cierran en el primer tick
+        List<Object[]> active = activeCallRepository.findAllExpiryClocks();
+        for (Object[] row : active) {
+            LocalDateTime expiresAt = (LocalDateTime) row[1];
+            wheel.schedule((Long) row[0], expiresAt != null ? toEpochMillis(expiresAt) : 0L);
+        }
+        wheel.start();
+        logger.info("Call expiry wheel started with {} active calls", active.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+    }
+
+    public void scheduleAfterCommit(Long callId, LocalDateTime expiresAt) {
+        afterCommit(() -> wheel.schedule(callId, toEpochMillis(expiresAt)));
+    }
+
+    public void cancelAfterCommit(Long callId) {
+        afterCommit(() -> wheel.cancel(callId));
+    }
+
+    public int pending() {
+        return wheel.pending();
+    }
+
+    private void onCallEvent(CallEvent event) {
+        if (event.getCallId() == null) {
+            return;
+        }
+        if (CallEvent.CREATED.equals(event.getType()) && event.getExpiresAt() != null) {
+            wheel.schedule(event.getCallId(), toEpochMillis(event.getExpiresAt()));
+        } else if (CallEvent.ACKNOWLEDGED.equals(event.getType()) || CallEvent.EXPIRED.equals(event.getType())) {
+            wheel.cancel(event.getCallId());
+        }
+    }
+
+    private void expire(List<Long> callIds) {
+        for (int from = 0; from < callIds.size(); from += BATCH_SIZE) {
+            List<Long> chunk = callIds.subList(from, Math.min(from + BATCH_SIZE, callIds.size()));
+            List<Long> expired;
+            try {
+                expired = expireChunk(chunk);
+            } catch (RuntimeException e) {
+                // los ids ya salieron de la rueda: sin volver a programarlos seguirían ACTIVE
+                logger.error("Expiry batch of {} calls failed, retrying in {} ms", chunk.size(), RETRY_DELAY_MS, e);
+                long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+                chunk.forEach(id -> wheel.schedule(id, retryAt));
+                continue;
+            }
+            if (!expired.isEmpty()) {
+                // recién confirmado: si la transacción fallaba, el escalamiento debía seguir vivo
+                escalationEngine.cancel(expired);
+                logger.info("Expired {} calls", expired.size());
+            }
+        }
+    }
+
+    private List<Long> expireChunk(List<Long> chunk) {
+        return transactionTemplate.execute(status -> {
+            // bloquear primero: un ack concurrente no puede colarse entre la lectura y el UPDATE
+            List<Call> calls = callRepository.lockByIdInAndStatus(chunk, CallStatus.ACTIVE);
+            if (calls.isEmpty()) {
+                return List.of();
+            }
+            List<Long> ids = new ArrayList<>(calls.size());
+            for (Call call : calls) {
+                ids.add(call.getId());
+                CallEvent event = CallEvent.from(call, CallEvent.EXPIRED);
+                event.setStatus(CallStatus.EXPIRED.name());
+                callOutbox.record(event, null, null);
+            }
+            callRepository.updateStatusByIdIn(ids, CallStatus.ACTIVE, CallStatus.EXPIRED);
+            activeCallRepository.deleteByCallIds(ids);
+            return ids;
+        });
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
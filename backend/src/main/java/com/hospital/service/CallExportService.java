@@ -0,0 +1,250 @@
+package com.hospital.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.model.CallStatus;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Exportación del historial de llamados (CSV o NDJSON) para auditorías.
+// Lee con un cursor JDBC de solo avance y fetch size acotado, y escribe cada fila directo al
+// stream de la respuesta: la memoria no depende del tamaño del rango (no se materializan
+// entidades Call ni sus relaciones). Recorre primero calls_archive y luego calls, cada una
+// en orden de creación; el archivo solo se consulta si el rango llega antes del corte de retención.
+@Service
+public class CallExportService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final String[] COLUMNS = {
+        "id", "status", "createdAt", "acknowledgedAt", "responseMs", "escalationLevel",
+        "islandId", "islandName", "bedId", "bedNumber", "nurseId", "nurseName", "patientName", "archived"
+    };
+
+    // Mismas columnas para ambas tablas; los nombres se resuelven con LEFT JOIN por si la cama,
+    // el enfermero o el paciente ya no existen
+    private static final String HOT_SQL =
+        "select c.id, c.status, c.created_at, c.acknowledged_at, c.escalation_level, " +
+        "b.island_id, i.name as island_name, c.bed_id, b.bed_number, c.nurse_id, nu.full_name as nurse_name, " +
+        "pu.full_name as patient_name, 0 as archived " +
+        "from calls c " +
+        "left join beds b on b.id = c.bed_id " +
+        "left join islands i on i.id = b.island_id " +
+        "left join nurses n on n.id = c.nurse_id left join users nu on nu.id = n.user_id " +
+        "left join patients p on p.id = c.patient_id left join users pu on pu.id = p.user_id " +
+        "where c.created_at >= :from and c.created_at < :to";
+
+    private static final String ARCHIVE_SQL =
+        "select a.id, a.status, a.created_at, a.acknowledged_at, a.escalation_level, " +
+        "a.island_id, i.name as island_name, a.bed_id, b.bed_number, a.nurse_id, nu.full_name as nurse_name, " +
+        "pu.full_name as patient_name, 1 as archived " +
+        "from calls_archive a " +
+        "left join islands i on i.id = a.island_id " +
+        "left join beds b on b.id = a.bed_id " +
+        "left join nurses n on n.id = a.nurse_id left join users nu on nu.id = n.user_id " +
+        "left join patients p on p.id = a.patient_id left join users pu on pu.id = p.user_id " +
+        "where a.created_at >= :from and a.created_at < :to";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CallRetentionService retentionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${calls.export.fetch-size:500}")
+    private int fetchSize;
+
+    private NamedParameterJdbcTemplate cursorTemplate;
+
+    @PostConstruct
+    public void init() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        // Connector/J solo hace streaming fila a fila con fetchSize = Integer.MIN_VALUE;
+        // con cualquier otro valor trae el resultado completo a memoria
+        boolean mysql = product != null && product.toLowerCase().contains("mysql");
+        jdbc.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+        cursorTemplate = new NamedParameterJdbcTemplate(jdbc);
+    }
+
+    // Devuelve cuántas filas escribió
+    public long export(OutputStream out, String format, LocalDateTime from, LocalDateTime to, Long islandId) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rowWriter = NDJSON.equals(format) ? new NdjsonWriter(writer) : new CsvWriter(writer);
+        rowWriter.header();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", Timestamp.valueOf(from))
+            .addValue("to", Timestamp.valueOf(to));
+        String islandFilter = "";
+        if (islandId != null) {
+            islandFilter = " and %s = :islandId";
+            params.addValue("islandId", islandId);
+        }
+
+        long[] rows = {0};
+        try {
+            if (retentionService.archiveMayContain(from)) {
+                String sql = ARCHIVE_SQL + String.format(islandFilter, "a.island_id") + " order by a.created_at, a.id";
+                cursorTemplate.query(sql, params, rs -> {
+                    rowWriter.row(rs);
+                    rows[0]++;
+                });
+            }
+            String sql = HOT_SQL + String.format(islandFilter, "b.island_id") + " order by c.created_at, c.id";
+            cursorTemplate.query(sql, params, rs -> {
+                rowWriter.row(rs);
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // el cliente cerró la conexión: se corta la consulta
+            throw e.getCause();
+        }
+        rowWriter.finish();
+        writer.flush();
+        return rows[0];
+    }
+
+    private static String status(ResultSet rs) throws SQLException {
+        return CallStatus.fromCode(rs.getShort("status")).name();
+    }
+
+    private static Long responseMillis(Timestamp created, Timestamp acknowledged) {
+        return created != null && acknowledged != null ? acknowledged.getTime() - created.getTime() : null;
+    }
+
+    private interface RowWriter {
+        void header() throws IOException;
+
+        void row(ResultSet rs) throws SQLException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void header() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException {
+            Timestamp created = rs.getTimestamp("created_at");
+            Timestamp acknowledged = rs.getTimestamp("acknowledged_at");
+            try {
+                writer.write(String.valueOf(rs.getLong("id")));
+                cell(status(rs));
+                cell(created != null ? created.toLocalDateTime().toString() : null);
+                cell(acknowledged != null ? acknowledged.toLocalDateTime().toString() : null);
+                cell(responseMillis(created, acknowledged));
+                cell(rs.getObject("escalation_level"));
+                cell(rs.getObject("island_id"));
+                cell(rs.getString("island_name"));
+                cell(rs.getObject("bed_id"));
+                cell(rs.getString("bed_number"));
+                cell(rs.getObject("nurse_id"));
+                cell(rs.getString("nurse_name"));
+                cell(rs.getString("patient_name"));
+                cell(rs.getInt("archived") == 1);
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void cell(Object value) throws IOException {
+            writer.write(',');
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator json;
+
+        NdjsonWriter(Writer writer) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            // un objeto por línea
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void header() {
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException {
+            Timestamp created = rs.getTimestamp("created_at");
+            Timestamp acknowledged = rs.getTimestamp("acknowledged_at");
+            try {
+                json.writeStartObject();
+                json.writeNumberField("id", rs.getLong("id"));
+                json.writeStringField("status", status(rs));
+                json.writeStringField("createdAt", created != null ? created.toLocalDateTime().toString() : null);
+                json.writeStringField("acknowledgedAt", acknowledged != null ? acknowledged.toLocalDateTime().toString() : null);
+                json.writeObjectField("responseMs", responseMillis(created, acknowledged));
+                json.writeObjectField("escalationLevel", rs.getObject("escalation_level"));
+                json.writeObjectField("islandId", rs.getObject("island_id"));
+                json.writeStringField("islandName", rs.getString("island_name"));
+                json.writeObjectField("bedId", rs.getObject("bed_id"));
+                json.writeStringField("bedNumber", rs.getString("bed_number"));
+                json.writeObjectField("nurseId", rs.getObject("nurse_id"));
+                json.writeStringField("nurseName", rs.getString("nurse_name"));
+                json.writeStringField("patientName", rs.getString("patient_name"));
+                json.writeBooleanField("archived", rs.getInt("archived") == 1);
+                json.writeEndObject();
+                json.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+}
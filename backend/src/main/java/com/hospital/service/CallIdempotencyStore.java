@@ -0,0 +1,234 @@
+package com.hospital.service;
+
+import com.hospital.model.Call;
+import com.hospital.model.CallIdempotencyKey;
+import com.hospital.model.CallStatus;
+import com.hospital.repository.CallIdempotencyKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Respuestas de POST /api/calls por Idempotency-Key.
+// - en memoria: mapa acotado (calls.idempotency.max-entries) en orden de llegada, con TTL;
+//   una repetición encontrada aquí no toca la BD ni abre transacción. Las claves en curso nunca
+//   se descartan (un reintento crearía un segundo llamado): con todas en curso el mapa pasa
+//   temporalmente del límite.
+// - una repetición que llega mientras la original sigue en curso espera su resultado
+//   (createCall corre una sola vez por clave).
+// - con calls.idempotency.persist la clave además se guarda en call_idempotency_keys dentro de
+//   la transacción del llamado (ver CallService); sirve entre instancias y tras un reinicio.
+// Solo se recuerdan los éxitos: si la original falla, el reintento vuelve a intentarlo.
+@Component
+public class CallIdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallIdempotencyStore.class);
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private CallIdempotencyKeyRepository keyRepository;
+
+    @Value("${calls.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${calls.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${calls.idempotency.persist:false}")
+    private boolean persist;
+
+    @Value("${calls.idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayedFromMemory = new LongAdder();
+    private final LongAdder replayedFromDb = new LongAdder();
+    private final LongAdder joinedInFlight = new LongAdder();
+    private final LongAdder overflowEvictions = new LongAdder();
+
+    public record Result(Map<String, Object> body, boolean replayed) {}
+
+    private static final class Entry {
+        final Long bedId;
+        final long expiresAtNanos;
+        final CompletableFuture<Map<String, Object>> response = new CompletableFuture<>();
+
+        Entry(Long bedId, long expiresAtNanos) {
+            this.bedId = bedId;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    public boolean isPersistent() {
+        return persist;
+    }
+
+    // Cuerpo de la respuesta de alta; lo comparten la respuesta original y las repeticiones
+    public static Map<String, Object> createdResponse(Long callId, CallStatus status, LocalDateTime createdAt) {
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("id", callId);
+        resp.put("status", status);
+        resp.put("createdAt", createdAt);
+        return resp;
+    }
+
+    // Devuelve la respuesta ya registrada para la clave o ejecuta 'create' (una sola vez)
+    public Result execute(String key, Long bedId, Function<String, Call> create) {
+        long now = System.nanoTime();
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            evictExpired(now);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(bedId, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+                entries.put(key, entry);
+                owner = true;
+                if (entries.size() > maxEntries) {
+                    evictEldestCompleted();
+                }
+            }
+        }
+        if (!entry.bedId.equals(bedId)) {
+            throw new RuntimeException("Idempotency-Key ya utilizada para otra cama");
+        }
+        if (!owner) {
+            return awaitOriginal(entry);
+        }
+
+        try {
+            Map<String, Object> body = persist ? replayFromDb(key, bedId) : null;
+            if (body != null) {
+                replayedFromDb.increment();
+                entry.response.complete(body);
+                return new Result(body, true);
+            }
+            Call call = create.apply(key);
+            executed.increment();
+            body = createdResponse(call.getId(), call.getStatus(), call.getCreatedAt());
+            entry.response.complete(body);
+            return new Result(body, false);
+        } catch (DataIntegrityViolationException e) {
+            // otra instancia confirmó la misma clave entre la consulta y el commit
+            Map<String, Object> body = persist ? replayFromDb(key, bedId) : null;
+            if (body == null) {
+                forget(key, entry, e);
+                throw e;
+            }
+            replayedFromDb.increment();
+            entry.response.complete(body);
+            return new Result(body, true);
+        } catch (RuntimeException e) {
+            forget(key, entry, e);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("persist", persist);
+        stats.put("executed", executed.sum());
+        stats.put("replayedFromMemory", replayedFromMemory.sum());
+        stats.put("replayedFromDb", replayedFromDb.sum());
+        stats.put("joinedInFlight", joinedInFlight.sum());
+        stats.put("overflowEvictions", overflowEvictions.sum());
+        return stats;
+    }
+
+    // Las claves persistidas viven lo mismo que en memoria
+    @Scheduled(fixedDelayString = "${calls.idempotency.cleanup-ms:600000}")
+    public void purgeExpired() {
+        if (!persist) {
+            return;
+        }
+        int deleted = keyRepository.deleteCreatedBefore(LocalDateTime.now().minusSeconds(ttlSeconds));
+        if (deleted > 0) {
+            logger.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private Result awaitOriginal(Entry entry) {
+        boolean done = entry.response.isDone();
+        try {
+            Map<String, Object> body = entry.response.get(waitSeconds, TimeUnit.SECONDS);
+            (done ? replayedFromMemory : joinedInFlight).increment();
+            return new Result(body, true);
+        } catch (ExecutionException e) {
+            // la original falló: este intento recibe el mismo error
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Error al crear el llamado", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Solicitud con la misma Idempotency-Key aún en curso");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Solicitud interrumpida", e);
+        }
+    }
+
+    private Map<String, Object> replayFromDb(String key, Long bedId) {
+        CallIdempotencyKey row = keyRepository.findById(key).orElse(null);
+        if (row == null || row.getCreatedAt().isBefore(LocalDateTime.now().minusSeconds(ttlSeconds))) {
+            return null;
+        }
+        if (!row.getBedId().equals(bedId)) {
+            throw new RuntimeException("Idempotency-Key ya utilizada para otra cama");
+        }
+        // el alta siempre responde con el estado inicial del llamado
+        return createdResponse(row.getCallId(), CallStatus.ACTIVE, row.getCallCreatedAt());
+    }
+
+    private void forget(String key, Entry entry, RuntimeException error) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+        entry.response.completeExceptionally(error);
+    }
+
+    // Orden de llegada + TTL fijo: las vencidas están siempre al principio
+    private void evictExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.expiresAtNanos - now > 0) {
+                return;
+            }
+            if (e.response.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    // La más antigua ya respondida; las que siguen en curso se saltan
+    private void evictEldestCompleted() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().response.isDone()) {
+                it.remove();
+                overflowEvictions.increment();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.hospital.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contador de versión de la bandeja de llamados de cada enfermero.
+// Cambia cada vez que un evento de llamado de ese enfermero se confirma (ver
+// CallNotificationDispatcher.enqueue), así GET /api/calls/nurse/{id} puede responder
+// 304 con If-None-Match sin tocar la BD, y el long-poll puede esperar al próximo cambio.
+@Component
+public class CallInboxVersions {
+
+    // distingue las versiones de este arranque de las de uno anterior
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, Inbox> inboxes = new ConcurrentHashMap<>();
+    private final ExecutorService listeners = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final class Inbox {
+        final AtomicLong version = new AtomicLong();
+        final Queue<Runnable> waiters = new ConcurrentLinkedQueue<>();
+    }
+
+    @PreDestroy
+    public void stop() {
+        listeners.shutdownNow();
+    }
+
+    public void bump(Long nurseId) {
+        if (nurseId == null) {
+            return;
+        }
+        Inbox inbox = inbox(nurseId);
+        inbox.version.incrementAndGet();
+        Runnable waiter;
+        while ((waiter = inbox.waiters.poll()) != null) {
+            listeners.execute(waiter);
+        }
+    }
+
+    public String etag(Long nurseId) {
+        return "\"" + bootId + "-" + nurseId + "-" + inbox(nurseId).version.get() + "\"";
+    }
+
+    public boolean matches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ejecuta 'listener' (en un hilo virtual) en cuanto la bandeja deje de estar en 'knownEtag'
+    public void onChange(Long nurseId, String knownEtag, Runnable listener) {
+        Inbox inbox = inbox(nurseId);
+        inbox.waiters.add(listener);
+        // si cambió mientras nos registrábamos, no esperar al próximo bump
+        if (!etag(nurseId).equals(knownEtag) && inbox.waiters.remove(listener)) {
+            listeners.execute(listener);
+        }
+    }
+
+    public void cancel(Long nurseId, Runnable listener) {
+        Inbox inbox = inboxes.get(nurseId);
+        if (inbox != null) {
+            inbox.waiters.remove(listener);
+        }
+    }
+
+    private Inbox inbox(Long nurseId) {
+        return inboxes.computeIfAbsent(nurseId, k -> new Inbox());
+    }
+}
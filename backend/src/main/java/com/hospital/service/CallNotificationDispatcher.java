@@ -0,0 +1,204 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Entrega de notificaciones de llamados fuera de la transacción: el bus de eventos encola
+// los eventos ya confirmados en una cola acotada y los consumen workers en hilos virtuales, cada
+// canal (SSE, push) con su propio timeout. SSE se entrega en cada nodo (conexiones locales) y el
+// push en uno solo, por eso se encolan por separado (el push pasa por PushCoalescer, que agrupa
+// los de un mismo enfermero). Si la cola está llena devuelven false y el bus reintenta más tarde
+// desde el outbox.
+@Component
+public class CallNotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallNotificationDispatcher.class);
+
+    @Autowired
+    private CallStreamHub streamHub;
+
+    @Autowired
+    private PushCoalescer pushCoalescer;
+
+    @Autowired
+    private CallInboxVersions inboxVersions;
+
+    @Value("${calls.notify.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${calls.notify.workers:4}")
+    private int workerCount;
+
+    @Value("${calls.notify.sse-timeout-ms:2000}")
+    private long sseTimeoutMs;
+
+    @Value("${calls.notify.push-timeout-ms:5000}")
+    private long pushTimeoutMs;
+
+    private BlockingQueue<Notification> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ExecutorService channelExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean running = true;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final ChannelStats sseStats = new ChannelStats();
+    private final ChannelStats pushStats = new ChannelStats();
+
+    private record Notification(CallEvent event, boolean sse, String pushTitle, String pushBody, long enqueuedAt) {}
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("call-notify-" + i).start(this::workLoop));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        channelExecutor.shutdownNow();
+    }
+
+    // Entrega a las conexiones SSE abiertas en este nodo
+    public boolean enqueueLocal(CallEvent event) {
+        // la bandeja del enfermero cambió (aunque la notificación llegue a descartarse)
+        inboxVersions.bump(event.getNurseId());
+        return offer(new Notification(event, true, null, null, System.nanoTime()));
+    }
+
+    // Envía el push del evento (un solo nodo lo hace por cada evento)
+    public boolean enqueuePush(CallEvent event, String pushTitle, String pushBody) {
+        return offer(new Notification(event, false, pushTitle, pushBody, System.nanoTime()));
+    }
+
+    private boolean offer(Notification n) {
+        CallEvent event = n.event();
+        if (!queue.offer(n)) {
+            rejected.increment();
+            logger.warn("Notification queue full ({}), deferring {} for call {}", queueCapacity, event.getType(), event.getCallId());
+            return false;
+        }
+        enqueued.increment();
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        return true;
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                Notification n = queue.take();
+                queueWaitNanos.add(System.nanoTime() - n.enqueuedAt());
+                deliver(n);
+                dispatched.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Unexpected error delivering call notification", e);
+            }
+        }
+    }
+
+    private void deliver(Notification n) throws InterruptedException {
+        Long nurseId = n.event().getNurseId();
+        if (nurseId == null) {
+            return;
+        }
+        if (n.sse()) {
+            pushCoalescer.observe(n.event());
+        }
+        // ambos canales en paralelo, cada uno con su propio límite de tiempo
+        Future<?> sse = n.sse()
+            ? channelExecutor.submit(() -> streamHub.send(nurseId, n.event()))
+            : null;
+        Future<?> push = n.pushTitle() != null
+            ? channelExecutor.submit(() -> pushCoalescer.submit(n.event(), n.pushTitle(), n.pushBody()))
+            : null;
+        if (sse != null) {
+            await(sse, sseTimeoutMs, sseStats, "SSE", n);
+        }
+        if (push != null) {
+            await(push, pushTimeoutMs, pushStats, "push", n);
+        }
+    }
+
+    private void await(Future<?> future, long timeoutMs, ChannelStats stats, String channel, Notification n) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            if (Boolean.FALSE.equals(future.get(timeoutMs, TimeUnit.MILLISECONDS))) {
+                stats.skipped.increment(); // sin conexión abierta para ese enfermero
+            } else {
+                stats.delivered.increment();
+            }
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            stats.timedOut.increment();
+            logger.warn("{} delivery for call {} timed out after {} ms", channel, n.event().getCallId(), timeoutMs);
+        } catch (java.util.concurrent.ExecutionException e) {
+            stats.failed.increment();
+            logger.warn("{} delivery for call {} failed: {}", channel, n.event().getCallId(), e.getCause().getMessage());
+        } finally {
+            stats.latencyNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("queueDepth", queue.size());
+        stats.put("maxQueueDepth", maxQueueDepth.get());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("dispatched", dispatched.sum());
+        long done = dispatched.sum();
+        stats.put("avgQueueWaitMs", done == 0 ? 0.0 : queueWaitNanos.sum() / 1_000_000.0 / done);
+        stats.put("sse", sseStats.toMap());
+        stats.put("push", pushStats.toMap());
+        return stats;
+    }
+
+    private static final class ChannelStats {
+        final LongAdder delivered = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder latencyNanos = new LongAdder();
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            long total = delivered.sum() + failed.sum() + timedOut.sum() + skipped.sum();
+            m.put("delivered", delivered.sum());
+            m.put("skipped", skipped.sum());
+            m.put("failed", failed.sum());
+            m.put("timedOut", timedOut.sum());
+            m.put("avgLatencyMs", total == 0 ? 0.0 : latencyNanos.sum() / 1_000_000.0 / total);
+            return m;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.hospital.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.dto.CallEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Escribe los eventos de llamados en call_outbox dentro de la transacción del llamado.
+// Si la JVM muere después del commit y antes de que el bus lo lea, el bus lo publica al volver;
+// si la transacción se revierte, el evento desaparece con ella. (Lo que el bus ya pasó a la cola
+// en memoria del dispatcher no se vuelve a leer: ver DbPollingCallEventBus.)
+// Las filas de una transacción se juntan y se insertan en un solo lote JDBC justo antes del
+// commit, en el orden en que se registraron. call_outbox.id es IDENTITY: guardarlas una a una
+// con JPA obligaría a Hibernate a ejecutar cada INSERT en el momento (y todo lo pendiente
+// antes), así que un lote de llamados de GroupCommitter volvería a ser fila por fila.
+@Component
+public class CallOutbox {
+
+    private static final String INSERT_SQL = "insert into call_outbox "
+        + "(event_type, call_id, nurse_id, payload, push_title, push_body, created_at) values (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CallEventBus eventBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private record Row(String eventType, Long callId, Long nurseId, String payload,
+                       String pushTitle, String pushBody, LocalDateTime createdAt) {}
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(CallEvent event, String pushTitle, String pushBody) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error al serializar evento de llamado", e);
+        }
+        pendingRows().add(new Row(event.getType(), event.getCallId(), event.getNurseId(), payload,
+            pushTitle, pushBody, LocalDateTime.now()));
+    }
+
+    // Filas de la transacción actual; la primera registra la escritura antes del commit
+    @SuppressWarnings("unchecked")
+    private List<Row> pendingRows() {
+        List<Row> rows = (List<Row>) TransactionSynchronizationManager.getResource(this);
+        if (rows != null) {
+            return rows;
+        }
+        List<Row> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                insert(created);
+            }
+
+            @Override
+            public void afterCommit() {
+                // despertar al bus en cuanto los eventos sean visibles (sin esperar al próximo sondeo)
+                eventBus.wakeUp();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CallOutbox.this);
+            }
+        });
+        return created;
+    }
+
+    private void insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.eventType());
+            ps.setObject(2, row.callId(), Types.BIGINT);
+            ps.setObject(3, row.nurseId(), Types.BIGINT);
+            ps.setString(4, row.payload());
+            ps.setString(5, row.pushTitle());
+            ps.setString(6, row.pushBody());
+            ps.setTimestamp(7, Timestamp.valueOf(row.createdAt()));
+        });
+    }
+}
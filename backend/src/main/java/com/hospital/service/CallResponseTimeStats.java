@@ -0,0 +1,167 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallEvent;
+import com.hospital.repository.CallRepository;
+import com.hospital.util.LogLinearHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// Tiempo hasta el reconocimiento (acknowledgedAt - createdAt) agregado en memoria:
+// un histograma de memoria fija por hora de creación del llamado, y dentro de cada hora uno por
+// isla y uno por enfermero. Se alimenta con los eventos CALL_ACKNOWLEDGED del bus (así cada
+// instancia ve los reconocimientos de todas) y se reconstruye desde 'calls' al arrancar.
+// Solo se guardan las últimas calls.stats.retention-hours horas; /api/admin/calls/stats
+// responde combinando histogramas, sin GROUP BY sobre la tabla.
+@Component
+public class CallResponseTimeStats {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallResponseTimeStats.class);
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    @Autowired
+    private CallRepository callRepository;
+
+    @Value("${calls.stats.retention-hours:48}")
+    private int retentionHours;
+
+    // hora (epoch millis / 1h) -> agregados de esa hora; protegido por 'this'
+    private final TreeMap<Long, HourSlot> hours = new TreeMap<>();
+
+    private static final class HourSlot {
+        final LogLinearHistogram all = new LogLinearHistogram();
+        final Map<Long, LogLinearHistogram> byIsland = new HashMap<>();
+        final Map<Long, LogLinearHistogram> byNurse = new HashMap<>();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime since = LocalDateTime.now().minusHours(retentionHours);
+        List<Object[]> rows = callRepository.findAckTimesSince(since);
+        for (Object[] row : rows) {
+            record((Long) row[3], (Long) row[2], (LocalDateTime) row[0], (LocalDateTime) row[1]);
+        }
+        logger.info("Response-time stats rebuilt from {} acknowledged calls", rows.size());
+    }
+
+    public void record(CallEvent event) {
+        record(event.getIslandId(), event.getNurseId(), event.getCreatedAt(), event.getAcknowledgedAt());
+    }
+
+    public void record(Long islandId, Long nurseId, LocalDateTime createdAt, LocalDateTime acknowledgedAt) {
+        if (createdAt == null || acknowledgedAt == null) {
+            return;
+        }
+        long millis = Duration.between(createdAt, acknowledgedAt).toMillis();
+        long hour = epochHour(createdAt);
+        synchronized (this) {
+            long oldest = System.currentTimeMillis() / HOUR_MILLIS - retentionHours;
+            if (hour <= oldest) {
+                return;
+            }
+            HourSlot slot = hours.computeIfAbsent(hour, h -> new HourSlot());
+            slot.all.record(millis);
+            if (islandId != null) {
+                slot.byIsland.computeIfAbsent(islandId, id -> new LogLinearHistogram()).record(millis);
+            }
+            if (nurseId != null) {
+                slot.byNurse.computeIfAbsent(nurseId, id -> new LogLinearHistogram()).record(millis);
+            }
+            hours.headMap(oldest, true).clear();
+        }
+    }
+
+    // Percentiles de las últimas 'lastHours' horas. groupBy: total | island | nurse | hour.
+    // islandId / nurseId restringen a esa isla o enfermero (con groupBy=hour, la serie de ese filtro).
+    public Map<String, Object> query(int lastHours, String groupBy, Long islandId, Long nurseId) {
+        int span = Math.max(1, Math.min(lastHours, retentionHours));
+        long from = System.currentTimeMillis() / HOUR_MILLIS - span + 1;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hours", span);
+        result.put("groupBy", groupBy);
+        synchronized (this) {
+            Map<Long, HourSlot> window = hours.tailMap(from, true);
+            switch (groupBy) {
+                case "island" -> result.put("groups", merge(window, slot -> slot.byIsland, islandId));
+                case "nurse" -> result.put("groups", merge(window, slot -> slot.byNurse, nurseId));
+                case "hour" -> {
+                    Map<String, Object> series = new LinkedHashMap<>();
+                    for (Map.Entry<Long, HourSlot> e : window.entrySet()) {
+                        LogLinearHistogram h = select(e.getValue(), islandId, nurseId);
+                        if (h != null) {
+                            series.put(Instant.ofEpochMilli(e.getKey() * HOUR_MILLIS).toString(), summary(h));
+                        }
+                    }
+                    result.put("groups", series);
+                }
+                default -> {
+                    LogLinearHistogram total = new LogLinearHistogram();
+                    for (HourSlot slot : window.values()) {
+                        LogLinearHistogram h = select(slot, islandId, nurseId);
+                        if (h != null) {
+                            total.add(h);
+                        }
+                    }
+                    result.put("total", summary(total));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Object> merge(Map<Long, HourSlot> window,
+                                             Function<HourSlot, Map<Long, LogLinearHistogram>> groups,
+                                             Long only) {
+        Map<Long, LogLinearHistogram> merged = new TreeMap<>();
+        for (HourSlot slot : window.values()) {
+            for (Map.Entry<Long, LogLinearHistogram> e : groups.apply(slot).entrySet()) {
+                if (only == null || only.equals(e.getKey())) {
+                    merged.computeIfAbsent(e.getKey(), k -> new LogLinearHistogram()).add(e.getValue());
+                }
+            }
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        merged.forEach((id, h) -> out.put(String.valueOf(id), summary(h)));
+        return out;
+    }
+
+    private static LogLinearHistogram select(HourSlot slot, Long islandId, Long nurseId) {
+        if (nurseId != null) {
+            return slot.byNurse.get(nurseId);
+        }
+        if (islandId != null) {
+            return slot.byIsland.get(islandId);
+        }
+        return slot.all;
+    }
+
+    private static Map<String, Object> summary(LogLinearHistogram h) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", h.getCount());
+        m.put("meanMs", Math.round(h.getMean()));
+        m.put("p50Ms", h.percentile(50));
+        m.put("p90Ms", h.percentile(90));
+        m.put("p99Ms", h.percentile(99));
+        m.put("maxMs", h.getMax());
+        return m;
+    }
+
+    private static long epochHour(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / HOUR_MILLIS;
+    }
+}
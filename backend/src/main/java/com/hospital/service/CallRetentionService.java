@@ -0,0 +1,201 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallHistoryDTO;
+import com.hospital.model.CallStatus;
+import com.hospital.repository.CallRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Retención de llamados: los cerrados (ACKNOWLEDGED / EXPIRED) con más de calls.retention.days
+// días pasan de 'calls' a 'calls_archive' en lotes pequeños (INSERT ... SELECT + DELETE en una
+// transacción por lote), en horario de poca carga. Así 'calls' solo guarda lo reciente y las
+// consultas por enfermero / cama no recorren meses de historial.
+// No se usan particiones de MySQL: 'calls' tiene claves foráneas y InnoDB no las admite en
+// tablas particionadas; la tabla de archivo funciona igual en H2 y MySQL.
+@Service
+public class CallRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallRetentionService.class);
+    public static final int MAX_HISTORY_ROWS = 5000;
+
+    private static final String ARCHIVE_SQL =
+        "insert into calls_archive (id, bed_id, island_id, patient_id, nurse_id, status, created_at, expires_at, " +
+        "escalation_level, escalated_at, acknowledged_at, archived_at) " +
+        "select c.id, c.bed_id, b.island_id, c.patient_id, c.nurse_id, c.status, c.created_at, c.expires_at, " +
+        "c.escalation_level, c.escalated_at, c.acknowledged_at, :archivedAt " +
+        "from calls c left join beds b on b.id = c.bed_id where c.id in (:ids)";
+
+    private static final String HOT_HISTORY_SQL =
+        "select c.id, c.bed_id, b.island_id, c.patient_id, c.nurse_id, c.status, c.created_at, c.expires_at, " +
+        "c.escalation_level, c.escalated_at, c.acknowledged_at, 0 as archived " +
+        "from calls c left join beds b on b.id = c.bed_id " +
+        "where c.created_at >= :from and c.created_at < :to";
+
+    private static final String ARCHIVE_HISTORY_SQL =
+        "select a.id, a.bed_id, a.island_id, a.patient_id, a.nurse_id, a.status, a.created_at, a.expires_at, " +
+        "a.escalation_level, a.escalated_at, a.acknowledged_at, 1 as archived " +
+        "from calls_archive a " +
+        "where a.created_at >= :from and a.created_at < :to";
+
+    @Autowired
+    private CallRepository callRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${calls.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${calls.retention.days:90}")
+    private int retentionDays;
+
+    @Value("${calls.retention.batch-size:500}")
+    private int batchSize;
+
+    @Value("${calls.retention.max-batches-per-run:40}")
+    private int maxBatchesPerRun;
+
+    @Value("${calls.retention.pause-ms:200}")
+    private long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder archived = new LongAdder();
+    private volatile LocalDateTime lastRunAt;
+    private volatile int lastRunArchived;
+
+    // Por defecto cada 10 minutos entre la 1:00 y las 5:59
+    @Scheduled(cron = "${calls.retention.cron:0 */10 1-5 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            archiveClosedCalls();
+        }
+    }
+
+    // Archiva hasta maxBatchesPerRun lotes; devuelve cuántos llamados movió
+    public int archiveClosedCalls() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        int moved = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                Integer chunk = transactionTemplate.execute(status -> archiveChunk(cutoff));
+                if (chunk == null || chunk == 0) {
+                    break;
+                }
+                moved += chunk;
+                archived.add(chunk);
+                if (chunk < batchSize) {
+                    break;
+                }
+                // pausa entre lotes para no acaparar la BD
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataIntegrityViolationException e) {
+            // otra instancia archivó el mismo lote; se retoma en la próxima ejecución
+            logger.warn("Call archive batch conflicted with a concurrent run: {}", e.getMessage());
+        } finally {
+            lastRunAt = LocalDateTime.now();
+            lastRunArchived = moved;
+            running.set(false);
+        }
+        if (moved > 0) {
+            logger.info("Archived {} closed calls older than {} days", moved, retentionDays);
+        }
+        return moved;
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        List<Long> ids = callRepository.findIdsClosedBefore(CallStatus.CLOSED, cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("ids", ids)
+            .addValue("archivedAt", Timestamp.valueOf(LocalDateTime.now()));
+        jdbcTemplate.update(ARCHIVE_SQL, params);
+        return jdbcTemplate.update("delete from calls where id in (:ids)", params);
+    }
+
+    // Historial en [from, to) sobre 'calls' y 'calls_archive', del más reciente al más antiguo.
+    // Si el rango empieza después del corte de retención, el archivo no puede tener filas y no se consulta.
+    public List<CallHistoryDTO> getHistory(LocalDateTime from, LocalDateTime to, Long nurseId, Long bedId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", Timestamp.valueOf(from))
+            .addValue("to", Timestamp.valueOf(to))
+            .addValue("limit", Math.max(1, Math.min(limit, MAX_HISTORY_ROWS)));
+        StringBuilder filters = new StringBuilder();
+        if (nurseId != null) {
+            filters.append(" and %1$s.nurse_id = :nurseId");
+            params.addValue("nurseId", nurseId);
+        }
+        if (bedId != null) {
+            filters.append(" and %1$s.bed_id = :bedId");
+            params.addValue("bedId", bedId);
+        }
+        String sql = HOT_HISTORY_SQL + String.format(filters.toString(), "c");
+        if (archiveMayContain(from)) {
+            sql += " union all " + ARCHIVE_HISTORY_SQL + String.format(filters.toString(), "a");
+        }
+        sql = "select * from (" + sql + ") h order by h.created_at desc limit :limit";
+        return jdbcTemplate.query(sql, params, HISTORY_ROW);
+    }
+
+    // El archivo solo tiene llamados anteriores al corte de retención
+    public boolean archiveMayContain(LocalDateTime from) {
+        return from == null || from.isBefore(LocalDateTime.now().minusDays(retentionDays));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("retentionDays", retentionDays);
+        stats.put("running", running.get());
+        stats.put("archivedSinceStart", archived.sum());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunArchived", lastRunArchived);
+        stats.put("hotRows", callRepository.count());
+        return stats;
+    }
+
+    private static final RowMapper<CallHistoryDTO> HISTORY_ROW = (rs, rowNum) -> {
+        CallHistoryDTO dto = new CallHistoryDTO();
+        dto.setId(rs.getLong("id"));
+        dto.setBedId(rs.getObject("bed_id", Long.class));
+        dto.setIslandId(rs.getObject("island_id", Long.class));
+        dto.setPatientId(rs.getObject("patient_id", Long.class));
+        dto.setNurseId(rs.getObject("nurse_id", Long.class));
+        dto.setStatus(CallStatus.fromCode(rs.getShort("status")).name());
+        dto.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        dto.setExpiresAt(rs.getObject("expires_at", LocalDateTime.class));
+        dto.setEscalationLevel(rs.getObject("escalation_level", Integer.class));
+        dto.setEscalatedAt(rs.getObject("escalated_at", LocalDateTime.class));
+        dto.setAcknowledgedAt(rs.getObject("acknowledged_at", LocalDateTime.class));
+        dto.setArchived(rs.getInt("archived") == 1);
+        return dto;
+    };
+}
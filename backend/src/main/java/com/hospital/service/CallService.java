@@ -1,25 +1,44 @@
 package com.hospital.service;
 
+import com.hospital.dto.CallEvent;
+import com.hospital.model.ActiveCall;
 import com.hospital.model.Call;
+import com.hospital.model.CallEscalation;
+import com.hospital.model.CallIdempotencyKey;
+import com.hospital.model.CallStatus;
 import com.hospital.model.Bed;
 import com.hospital.model.Nurse;
 import com.hospital.model.Patient;
+import com.hospital.repository.ActiveCallRepository;
 import com.hospital.repository.BedRepository;
+import com.hospital.repository.CallEscalationRepository;
+import com.hospital.repository.CallIdempotencyKeyRepository;
 import com.hospital.repository.CallRepository;
 import com.hospital.repository.NurseRepository;
 import com.hospital.repository.PatientRepository;
+import com.hospital.util.GroupCommitter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 public class CallService {
@@ -30,6 +49,9 @@ public class CallService {
     @Autowired
     private BedRepository bedRepository;
 
+    @Autowired
+    private ActiveCallRepository activeCallRepository;
+
     @Autowired
     private NurseRepository nurseRepository;
 
@@ -37,67 +59,147 @@ public class CallService {
     private PatientRepository patientRepository;
 
     @Autowired
-    private com.hospital.service.PushService pushService;
+    private CallEscalationRepository escalationRepository;
+
+    @Autowired
+    private CallStreamHub streamHub;
+
+    @Autowired
+    private CallOutbox callOutbox;
+
+    @Autowired
+    private NurseRoutingIndex routingIndex;
+
+    @Autowired
+    private BedCallCooldown bedCooldown;
+
+    @Autowired
+    private CallExpiryScheduler expiryScheduler;
+
+    @Autowired
+    private CallEscalationEngine escalationEngine;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${calls.ingest.batch.enabled:true}")
+    private boolean batchingEnabled;
+
+    @Value("${calls.ingest.batch.window-ms:5}")
+    private long batchWindowMs;
+
+    @Value("${calls.ingest.batch.max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${calls.ingest.batch.workers:2}")
+    private int batchWorkers;
+
+    @Autowired
+    private CallIdempotencyStore idempotencyStore;
+
+    @Autowired
+    private CallIdempotencyKeyRepository idempotencyKeyRepository;
+
+    private GroupCommitter<CallRequest, Call> ingestBatcher;
+
+    private record CallRequest(Long bedId, String idempotencyKey) {}
 
     private static final int COOLDOWN_SECONDS = 30;
+    private static final long COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(COOLDOWN_SECONDS);
+    private static final String COOLDOWN_MESSAGE = "Llamado ya realizado recientemente. Intenta de nuevo más tarde.";
     private static final int EXPIRE_MINUTES = 10;
-    private final Map<Long, SseEmitter> emitters = new ConcurrentHashMap<>();
 
-    // Método auxiliar para encontrar al enfermero de forma robusta
-    // (Busca por User ID primero, y si falla, por Nurse ID)
-    private Optional<Nurse> resolveNurse(Long userIdOrNurseId) {
-        Optional<Nurse> nurseOpt = nurseRepository.findByUserId(userIdOrNurseId);
-        if (nurseOpt.isEmpty()) {
-            nurseOpt = nurseRepository.findById(userIdOrNurseId);
+    // Resultado por id del reconocimiento en lote
+    public static final String ACK_OK = "ACKNOWLEDGED";
+    public static final String ACK_ALREADY_ACKNOWLEDGED = "ALREADY_ACKNOWLEDGED";
+    public static final String ACK_ALREADY_EXPIRED = "ALREADY_EXPIRED";
+    public static final String ACK_NOT_FOUND = "NOT_FOUND";
+    public static final int MAX_BULK_ACK = 500;
+
+    @PostConstruct
+    public void startIngest() {
+        if (batchingEnabled) {
+            ingestBatcher = new GroupCommitter<>("call-ingest", batchWindowMs, batchMaxSize, transactionTemplate, this::insertCall);
+            ingestBatcher.start(batchWorkers);
         }
-        return nurseOpt;
     }
 
-    @Transactional
+    @PreDestroy
+    public void stopIngest() {
+        if (ingestBatcher != null) {
+            ingestBatcher.stop();
+        }
+    }
+
+    // Con calls.ingest.batch.enabled las pulsaciones concurrentes se agrupan en una sola
+    // transacción (ver GroupCommitter); sin él cada llamado confirma por separado
     public Call createCall(Long bedId) {
-        Bed bed = bedRepository.findById(bedId)
-                .orElseThrow(() -> new RuntimeException("Cama no encontrada"));
-
-        // cooldown: check recent active calls for this bed
-        List<Call> recent = callRepository.findByBedIdAndStatusOrderByCreatedAtDesc(bedId, "ACTIVE");
-        if (recent != null && !recent.isEmpty()) {
-            Call last = recent.get(0);
-            if (last.getCreatedAt() != null && last.getCreatedAt().isAfter(LocalDateTime.now().minusSeconds(COOLDOWN_SECONDS))) {
-                throw new RuntimeException("Llamado ya realizado recientemente. Intenta de nuevo más tarde.");
-            }
+        return createCall(bedId, null);
+    }
+
+    // idempotencyKey: si la tabla de claves está activa se guarda junto con el llamado
+    public Call createCall(Long bedId, String idempotencyKey) {
+        CallRequest request = new CallRequest(bedId, idempotencyKey);
+        if (ingestBatcher != null) {
+            return ingestBatcher.submit(request);
         }
+        return transactionTemplate.execute(status -> insertCall(request));
+    }
 
-        // find nurse responsible for this bed
-        Nurse assigned = null;
-        List<Nurse> nurses = nurseRepository.findAll();
-        for (Nurse n : nurses) {
-            if (n.getAssignedBeds() != null) {
-                for (Bed b : n.getAssignedBeds()) {
-                    if (b.getId().equals(bedId)) {
-                        assigned = n;
-                        break;
-                    }
-                }
-            }
-            if (assigned != null) break;
-            if (assigned == null && n.getAssignedIslands() != null && bed.getIsland() != null) {
-                for (var isl : n.getAssignedIslands()) {
-                    if (bed.getIsland() != null && isl.getId().equals(bed.getIsland().getId())) {
-                        assigned = n;
-                        break;
-                    }
+    public Map<String, Object> getIngestStats() {
+        if (ingestBatcher == null) {
+            return Map.of("batching", false);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>(ingestBatcher.getStats());
+        stats.put("batching", true);
+        return stats;
+    }
+
+    // Cuerpo de createCall. Corre dentro de la transacción del llamador (propia o la del lote)
+    // y no es @Transactional: un rechazo de un llamado no debe revertir a los demás del lote
+    private Call insertCall(CallRequest request) {
+        Long bedId = request.bedId();
+        // cooldown: reserva atómica en memoria por cama, antes de cualquier consulta (una pulsación
+        // duplicada se rechaza sin tocar la BD)
+        long cooldownStamp = bedCooldown.tryAcquire(bedId, COOLDOWN_NANOS);
+        if (!bedCooldown.isAcquired(cooldownStamp)) {
+            throw new RuntimeException(COOLDOWN_MESSAGE);
+        }
+        Bed bed = bedRepository.findById(bedId).orElse(null);
+        if (bed == null) {
+            // id inexistente: no dejar su entrada en la tabla
+            bedCooldown.forget(bedId, cooldownStamp);
+            throw new RuntimeException("Cama no encontrada");
+        }
+        // si la transacción no confirma, la reserva se devuelve
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    bedCooldown.release(bedId, cooldownStamp);
                 }
             }
-            if (assigned != null) break;
+        });
+        try {
+            return insertCallForBed(bed, request);
+        } catch (RuntimeException e) {
+            // rechazado dentro de un lote que sí confirma: devolver la reserva aquí
+            bedCooldown.release(bedId, cooldownStamp);
+            throw e;
         }
+    }
 
-        // fallback: try to use island's first nurse if present
-        if (assigned == null && bed.getIsland() != null && bed.getIsland().getNurses() != null && !bed.getIsland().getNurses().isEmpty()) {
-            assigned = bed.getIsland().getNurses().get(0);
-        }
+    private Call insertCallForBed(Bed bed, CallRequest request) {
+        Long bedId = request.bedId();
+        // find nurse responsible for this bed (índice en memoria, sin consultar nurses / nurse_beds / nurse_islands)
+        Long assignedNurseId = routingIndex.resolveNurseId(bedId)
+                .orElseThrow(() -> new RuntimeException("No se encontró enfermero asignado a esta cama"));
+        Nurse assigned = nurseRepository.getReferenceById(assignedNurseId);
 
-        if (assigned == null) {
-            throw new RuntimeException("No se encontró enfermero asignado a esta cama");
+        // garantía en BD (reinicios / varias instancias): UPDATE condicional sobre beds.last_call_at
+        LocalDateTime now = LocalDateTime.now();
+        if (bedRepository.claimCallSlot(bedId, now, now.minusSeconds(COOLDOWN_SECONDS)) == 0) {
+            throw new RuntimeException(COOLDOWN_MESSAGE);
         }
 
         Patient patient = bed.getPatient();
@@ -106,72 +208,151 @@ public class CallService {
         call.setBed(bed);
         call.setPatient(patient);
         call.setNurse(assigned);
-        call.setStatus("ACTIVE");
-        call.setCreatedAt(LocalDateTime.now());
-        call.setExpiresAt(LocalDateTime.now().plusMinutes(EXPIRE_MINUTES));
+        call.setStatus(CallStatus.ACTIVE);
+        call.setEscalationLevel(0);
+        call.setCreatedAt(now);
+        call.setExpiresAt(now.plusMinutes(EXPIRE_MINUTES));
 
         Call saved = callRepository.save(call);
+        activeCallRepository.save(ActiveCall.of(saved));
+        expiryScheduler.scheduleAfterCommit(saved.getId(), saved.getExpiresAt());
+        escalationEngine.scheduleAfterCommit(saved.getId(), now);
 
-        // notify via SSE if nurse is connected
-        if (assigned != null) {
-            // Importante: Usamos el ID real del enfermero para buscar el emisor
-            SseEmitter emitter = emitters.get(assigned.getId());
-            if (emitter != null) {
-                try {
-                    emitter.send(saved);
-                } catch (IOException e) {
-                    emitters.remove(assigned.getId());
-                }
-            }
-
-            // send web-push notifications to nurse subscriptions
-            try {
-                String bedNum = bed.getBedNumber() != null ? bed.getBedNumber() : String.valueOf(bed.getId());
-                String patientName = patient != null && patient.getUser() != null ? patient.getUser().getFullName() : "Paciente";
-                String title = "Llamado de emergencia";
-                String bodyText = String.format("%s en cama %s está llamando.", patientName, bedNum);
-                pushService.sendPushToNurse(assigned.getId(), title, bodyText);
-            } catch (Exception e) {
-                System.err.println("Error sending push notifications: " + e.getMessage());
-            }
+        if (request.idempotencyKey() != null && idempotencyStore.isPersistent()) {
+            // misma transacción: una clave repetida en otra instancia falla por la PK y se responde
+            // con el llamado ya confirmado
+            CallIdempotencyKey key = new CallIdempotencyKey();
+            key.setKey(request.idempotencyKey());
+            key.setBedId(bedId);
+            key.setCallId(saved.getId());
+            key.setCallCreatedAt(saved.getCreatedAt());
+            key.setCreatedAt(now);
+            idempotencyKeyRepository.save(key);
         }
 
+        // evento en el outbox, en esta misma transacción; el bus notifica (SSE + push) tras el commit
+        CallEvent event = CallEvent.from(saved, CallEvent.CREATED);
+        String title = "Llamado de emergencia";
+        String bodyText = String.format("%s en cama %s está llamando.", event.getPatientName(), event.getBedNumber());
+        callOutbox.record(event, title, bodyText);
+
         return saved;
     }
 
     // MODIFICADO: Ahora es inteligente para buscar por UserID o NurseID
     public List<Call> getActiveCallsForNurse(Long userIdOrNurseId) {
-        Optional<Nurse> nurseOpt = resolveNurse(userIdOrNurseId);
+        Long nurseId = resolveNurseId(userIdOrNurseId);
 
-        if (nurseOpt.isPresent()) {
-            return callRepository.findByNurseIdAndStatusOrderByCreatedAtDesc(nurseOpt.get().getId(), "ACTIVE");
+        if (nurseId != null) {
+            return getActiveCallsByNurseId(nurseId);
         }
 
         return new ArrayList<>();
     }
 
-    // MODIFICADO: Registra el SSE bajo el ID real del enfermero
-    public SseEmitter subscribe(Long userIdOrNurseId) {
-        // Resolvemos quién es el enfermero real detrás de este ID
-        Optional<Nurse> nurseOpt = resolveNurse(userIdOrNurseId);
-        Long realNurseId = nurseOpt.map(Nurse::getId).orElse(userIdOrNurseId);
+    public List<Call> getActiveCallsByNurseId(Long nurseId) {
+        return activeCallRepository.findCallsByNurseId(nurseId);
+    }
 
-        SseEmitter emitter = new SseEmitter(0L); // 0L significa timeout infinito
+    // UserID o NurseID -> id real del enfermero, desde el índice en memoria: los sondeos
+    // repetidos no consultan la BD y un alta de enfermero se ve en cuanto confirma
+    public Long resolveNurseId(Long userIdOrNurseId) {
+        return routingIndex.resolveUserOrNurseId(userIdOrNurseId).orElse(null);
+    }
 
-        // Guardamos el emisor usando el ID REAL del enfermero
-        emitters.put(realNurseId, emitter);
+    // Registra el SSE bajo el ID real del enfermero (ya resuelto con resolveNurseId: nunca se abre
+    // un canal para un id que no corresponde a un enfermero)
+    public SseEmitter subscribe(Long nurseId, String lastEventId) {
+        return streamHub.subscribe(nurseId, lastEventId);
+    }
 
-        emitter.onCompletion(() -> emitters.remove(realNurseId));
-        emitter.onTimeout(() -> emitters.remove(realNurseId));
-        emitter.onError((e) -> emitters.remove(realNurseId));
+    // Stream de llamados escalados a administración
+    public SseEmitter subscribeAdmin(String lastEventId) {
+        return streamHub.subscribe(CallStreamHub.ADMIN_CHANNEL, lastEventId);
+    }
 
-        return emitter;
+    public List<CallEscalation> getEscalations(Long callId) {
+        return escalationRepository.findByCallIdOrderByHopAsc(callId);
     }
 
+    // Reconocimiento individual. El UPDATE lleva "where version = ?": si otro reconocimiento, el
+    // vencimiento o un escalamiento confirmó antes, falla con ObjectOptimisticLockingFailureException
+    // (409 en el controlador) en lugar de pisar el estado.
     @Transactional
     public Call acknowledgeCall(Long callId) {
         Call call = callRepository.findById(callId).orElseThrow(() -> new RuntimeException("Llamado no encontrado"));
-        call.setStatus("ACKNOWLEDGED");
-        return callRepository.save(call);
+        if (call.getStatus() != CallStatus.ACTIVE) {
+            throw new OptimisticLockingFailureException(call.getStatus() == CallStatus.ACKNOWLEDGED
+                ? "El llamado ya fue reconocido" : "El llamado ya venció");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        call.setStatus(CallStatus.ACKNOWLEDGED);
+        call.setAcknowledgedAt(now);
+        Call saved = callRepository.saveAndFlush(call);
+        closeAcknowledged(List.of(saved), now);
+        return saved;
+    }
+
+    // Reconocimiento en lote: bloquea los que siguen activos, un solo UPDATE ... WHERE status = ACTIVE
+    // y un evento por llamado reconocido. Devuelve el resultado por id (ver ACK_*).
+    @Transactional
+    public Map<Long, String> acknowledgeCalls(List<Long> callIds) {
+        List<Long> ids = callIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Long, String> outcome = new LinkedHashMap<>();
+        ids.forEach(id -> outcome.put(id, ACK_NOT_FOUND));
+        if (ids.isEmpty()) {
+            return outcome;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Call> calls = callRepository.lockByIdInAndStatus(ids, CallStatus.ACTIVE);
+        if (!calls.isEmpty()) {
+            List<Long> locked = calls.stream().map(Call::getId).collect(Collectors.toList());
+            // las entidades bloqueadas quedan con el estado anterior en el contexto; no se modifican
+            callRepository.acknowledgeByIdIn(locked, now, CallStatus.ACTIVE, CallStatus.ACKNOWLEDGED);
+            closeAcknowledged(calls, now);
+            locked.forEach(id -> outcome.put(id, ACK_OK));
+        }
+        List<Long> closed = ids.stream().filter(id -> ACK_NOT_FOUND.equals(outcome.get(id))).collect(Collectors.toList());
+        if (!closed.isEmpty()) {
+            for (Object[] row : callRepository.findStatusByIdIn(closed)) {
+                outcome.put((Long) row[0], row[1] == CallStatus.ACKNOWLEDGED ? ACK_ALREADY_ACKNOWLEDGED : ACK_ALREADY_EXPIRED);
+            }
+        }
+        return outcome;
+    }
+
+    // Todos los llamados abiertos de una cama (desde active_calls)
+    @Transactional
+    public Map<Long, String> acknowledgeBed(Long bedId) {
+        return acknowledgeCalls(activeCallRepository.findCallIdsByBedId(bedId));
+    }
+
+    // Efectos de reconocer: fuera de active_calls, temporizadores cancelados, un evento por llamado
+    // y enfriamiento de la cama liberado (solo aplica mientras el llamado sigue activo)
+    private void closeAcknowledged(List<Call> calls, LocalDateTime now) {
+        Set<Long> bedIds = new HashSet<>();
+        List<Long> ids = new ArrayList<>(calls.size());
+        for (Call call : calls) {
+            ids.add(call.getId());
+            expiryScheduler.cancelAfterCommit(call.getId());
+            escalationEngine.cancelAfterCommit(call.getId());
+            CallEvent event = CallEvent.from(call, CallEvent.ACKNOWLEDGED);
+            event.setStatus(CallStatus.ACKNOWLEDGED.name());
+            event.setAcknowledgedAt(now);
+            callOutbox.record(event, null, null);
+            if (call.getBed() != null) {
+                bedIds.add(call.getBed().getId());
+            }
+        }
+        activeCallRepository.deleteByCallIds(ids);
+        for (Long bedId : bedIds) {
+            bedRepository.releaseCallSlot(bedId);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bedIds.forEach(bedCooldown::clear);
+            }
+        });
     }
 }
\ No newline at end of file
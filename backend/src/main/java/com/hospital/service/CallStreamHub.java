@@ -0,0 +1,325 @@
+package com.hospital.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Conexiones SSE abiertas por enfermero (id real de la tabla nurses).
+// - varias conexiones por enfermero (PC de la estación + celular)
+// - latidos periódicos para detectar sockets muertos
+// - un buffer circular de eventos recientes por enfermero: al reconectar con
+//   Last-Event-ID se reenvía exactamente lo que se perdió
+// - las escrituras nunca bloquean al que publica: cada conexión tiene su cola y se
+//   vacía en un hilo virtual; los bytes pendientes se contabilizan por conexión y un
+//   cliente que no lee (más de max-pending-bytes en cola) se desconecta
+@Component
+public class CallStreamHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallStreamHub.class);
+
+    // Canal de administración (los ids de enfermero empiezan en 1)
+    public static final Long ADMIN_CHANNEL = 0L;
+
+    // Evento que se envía cuando el Last-Event-ID ya no está en el buffer: el cliente debe recargar
+    public static final String RESYNC_EVENT = "resync";
+
+    // Tamaño aproximado en el cable del marco SSE alrededor de los datos ("id:", "data:", saltos de línea)
+    private static final int FRAME_OVERHEAD_BYTES = 32;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${calls.stream.replay-buffer-size:64}")
+    private int replayBufferSize;
+
+    @Value("${calls.stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${calls.stream.max-pending-bytes:262144}")
+    private long maxPendingBytes;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+
+    // ids crecientes también entre reinicios, para que un Last-Event-ID viejo no coincida por azar
+    private final AtomicLong eventIds = new AtomicLong(System.currentTimeMillis() << 10);
+    // primer id que emite este proceso: uno menor viene de antes del reinicio (buffer perdido)
+    private final long firstEventId = eventIds.get() + 1;
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder deadConnections = new LongAdder();
+    private final LongAdder slowConsumerDrops = new LongAdder();
+    private final LongAdder replayedEvents = new LongAdder();
+    private final LongAdder framesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong replayBytes = new AtomicLong();
+    private ScheduledExecutorService heartbeat;
+
+    private record BufferedEvent(long id, String json) {}
+
+    // Un marco pendiente de escribir; el SseEventBuilder se crea al escribir porque no es reutilizable
+    private record Frame(String id, String name, String data, String comment) {
+        int size() {
+            return FRAME_OVERHEAD_BYTES + (data != null ? data.length() : 0) + (comment != null ? comment.length() : 0);
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            SseEmitter.SseEventBuilder event = SseEmitter.event();
+            if (comment != null) {
+                return event.comment(comment);
+            }
+            if (id != null) {
+                event.id(id);
+            }
+            if (name != null) {
+                event.name(name);
+            }
+            return event.data(data);
+        }
+    }
+
+    private static final class Channel {
+        final List<Connection> connections = new CopyOnWriteArrayList<>();
+        final ArrayDeque<BufferedEvent> recent = new ArrayDeque<>();
+        long lastEvictedId = Long.MIN_VALUE; // id más alto que ya salió del buffer
+    }
+
+    private final class Connection {
+        final SseEmitter emitter;
+        final Channel channel;
+        final ConcurrentLinkedQueue<Frame> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicLong queuedBytes = new AtomicLong();
+        volatile boolean closed;
+
+        Connection(SseEmitter emitter, Channel channel) {
+            this.emitter = emitter;
+            this.channel = channel;
+        }
+
+        boolean enqueue(Frame frame) {
+            if (closed) {
+                return false;
+            }
+            int size = frame.size();
+            if (queuedBytes.get() + size > maxPendingBytes) {
+                slowConsumerDrops.increment();
+                close(true);
+                return false;
+            }
+            queuedBytes.addAndGet(size);
+            pendingBytes.addAndGet(size);
+            queue.add(frame);
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+            return true;
+        }
+
+        // Un solo escritor a la vez por conexión: conserva el orden de los eventos
+        private void drain() {
+            do {
+                Frame frame;
+                while ((frame = queue.poll()) != null) {
+                    int size = frame.size();
+                    queuedBytes.addAndGet(-size);
+                    pendingBytes.addAndGet(-size);
+                    if (closed) {
+                        continue;
+                    }
+                    try {
+                        emitter.send(frame.toEvent());
+                        framesWritten.increment();
+                        bytesWritten.add(size);
+                    } catch (Exception e) {
+                        close(true);
+                    }
+                }
+                draining.set(false);
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        void close(boolean dead) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (channel.connections.remove(this) && dead) {
+                deadConnections.increment();
+            }
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+                // la conexión ya estaba rota
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sse-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        channels.values().forEach(c -> c.connections.forEach(conn -> conn.close(false)));
+        writers.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Long nurseId) {
+        return subscribe(nurseId, null);
+    }
+
+    public SseEmitter subscribe(Long nurseId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L); // 0L significa timeout infinito
+        Channel channel = channels.computeIfAbsent(nurseId, k -> new Channel());
+        Connection connection = new Connection(emitter, channel);
+
+        emitter.onCompletion(() -> connection.close(false));
+        emitter.onTimeout(() -> connection.close(false));
+        emitter.onError((e) -> connection.close(true));
+
+        // registrar y reenviar bajo el mismo candado: ningún evento nuevo se cuela entre ambos pasos
+        synchronized (channel) {
+            channel.connections.add(connection);
+            Long since = parseEventId(lastEventId);
+            if (since != null) {
+                replay(channel, connection, since);
+            }
+        }
+        return emitter;
+    }
+
+    // Encola el evento en todas las conexiones del enfermero; devuelve false si no hay ninguna
+    public boolean send(Long nurseId, Object payload) {
+        String json = toJson(payload);
+        Channel channel = channels.computeIfAbsent(nurseId, k -> new Channel());
+        boolean queued = false;
+        synchronized (channel) {
+            long id = eventIds.incrementAndGet();
+            channel.recent.addLast(new BufferedEvent(id, json));
+            replayBytes.addAndGet(json.length());
+            while (channel.recent.size() > replayBufferSize) {
+                BufferedEvent evicted = channel.recent.removeFirst();
+                channel.lastEvictedId = evicted.id();
+                replayBytes.addAndGet(-evicted.json().length());
+            }
+            Frame frame = new Frame(String.valueOf(id), null, json, null);
+            for (Connection connection : channel.connections) {
+                queued |= connection.enqueue(frame);
+            }
+        }
+        return queued;
+    }
+
+    // Envía un evento a todas las conexiones abiertas (no se guarda para reenvío)
+    public int broadcast(String name, Object payload) {
+        Frame frame = new Frame(String.valueOf(eventIds.incrementAndGet()), name, toJson(payload), null);
+        int queued = 0;
+        for (Channel channel : channels.values()) {
+            for (Connection connection : channel.connections) {
+                if (connection.enqueue(frame)) {
+                    queued++;
+                }
+            }
+        }
+        return queued;
+    }
+
+    public int connectionCount() {
+        return channels.values().stream().mapToInt(c -> c.connections.size()).sum();
+    }
+
+    public Map<String, Object> getStats() {
+        int connections = connectionCount();
+        long maxQueued = channels.values().stream()
+            .flatMap(c -> c.connections.stream())
+            .mapToLong(c -> c.queuedBytes.get())
+            .max().orElse(0);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("channels", channels.size());
+        stats.put("connections", connections);
+        stats.put("deadConnections", deadConnections.sum());
+        stats.put("slowConsumerDrops", slowConsumerDrops.sum());
+        stats.put("replayedEvents", replayedEvents.sum());
+        stats.put("framesWritten", framesWritten.sum());
+        stats.put("bytesWritten", bytesWritten.sum());
+        stats.put("pendingBytes", pendingBytes.get());
+        stats.put("maxPendingBytesPerConnection", maxQueued);
+        stats.put("replayBufferBytes", replayBytes.get());
+        stats.put("heapUsedBytes", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        return stats;
+    }
+
+    private void replay(Channel channel, Connection connection, long since) {
+        // hueco: se perdieron eventos que ya salieron del buffer, o el id es de otro proceso
+        // (anterior al reinicio, o mayor que cualquiera emitido aquí)
+        if (since < channel.lastEvictedId || since < firstEventId || since > eventIds.get()) {
+            connection.enqueue(new Frame(null, RESYNC_EVENT, "", null));
+        }
+        for (BufferedEvent event : channel.recent) {
+            if (event.id() > since && connection.enqueue(new Frame(String.valueOf(event.id()), null, event.json(), null))) {
+                replayedEvents.increment();
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        Frame frame = new Frame(null, null, null, "hb");
+        for (Channel channel : channels.values()) {
+            for (Connection connection : channel.connections) {
+                connection.enqueue(frame);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("SSE heartbeat: {} connections", connectionCount());
+        }
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo serializar el evento", e);
+        }
+    }
+
+    private static Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
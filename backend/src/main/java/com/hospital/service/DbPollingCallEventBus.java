@@ -0,0 +1,370 @@
+package com.hospital.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.dto.CallEvent;
+import com.hospital.model.CallOutboxEvent;
+import com.hospital.model.OutboxCursor;
+import com.hospital.repository.CallOutboxRepository;
+import com.hospital.repository.OutboxCursorRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Bus de eventos sobre la propia tabla call_outbox, sin broker.
+// Cada nodo lleva su cursor (sse:<nodo>) y entrega todo lo nuevo a sus conexiones locales;
+// el push usa un cursor compartido que se toma con bloqueo de fila, así cada push sale de un
+// solo nodo. Los cursores también sirven de latido: el outbox se poda hasta el mínimo de los
+// cursores vivos y los de nodos caídos se descartan tras calls.bus.node-timeout-seconds.
+// La latencia añadida entre nodos es como mucho calls.outbox.poll-ms.
+// Garantía: cada evento confirmado llega al menos una vez a la cola en memoria de
+// CallNotificationDispatcher (el cursor avanza al encolar, no al entregar). Lo que estaba en esa
+// cola, o en la ventana de PushCoalescer, se pierde si el nodo muere: SSE lo recupera el cliente
+// con el resync del hub al reconectar; un push perdido no se reintenta.
+@Component
+@ConditionalOnProperty(name = "calls.bus.type", havingValue = "db", matchIfMissing = true)
+public class DbPollingCallEventBus implements CallEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbPollingCallEventBus.class);
+    static final String PUSH_CONSUMER = "push";
+    static final String NODE_PREFIX = "sse:";
+    // cursor del relay de un solo nodo, anterior al bus
+    private static final String LEGACY_CONSUMER = "relay";
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private CallOutboxRepository outboxRepository;
+
+    @Autowired
+    private OutboxCursorRepository cursorRepository;
+
+    @Autowired
+    private CallNotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private NurseRoutingIndex routingIndex;
+
+    @Autowired
+    private CallResponseTimeStats responseTimeStats;
+
+    @Autowired
+    private PushSubscriptionRegistry subscriptionRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${calls.bus.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${calls.bus.node-timeout-seconds:60}")
+    private long nodeTimeoutSeconds;
+
+    @Value("${calls.outbox.poll-ms:500}")
+    private long pollMillis;
+
+    // Un id más alto puede confirmar antes que uno más bajo (IDENTITY): un hueco más joven
+    // que esto se espera; uno más viejo es un rollback y se salta
+    @Value("${calls.outbox.gap-grace-ms:5000}")
+    private long gapGraceMillis;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final List<Consumer<CallEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder pushed = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private final LongAdder skippedLocal = new LongAdder();
+    private final LongAdder skippedPush = new LongAdder();
+    private String nodeConsumer;
+    private volatile long localPosition;
+    private volatile long pushPosition;
+    private volatile boolean running;
+    private long lastMaintenance;
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        nodeConsumer = NODE_PREFIX + nodeId();
+        localPosition = transactionTemplate.execute(status -> {
+            // un nodo nuevo empieza al final del outbox: lo anterior ya lo entregaron los nodos que
+            // tenían esas conexiones, y la reconexión con Last-Event-ID se sirve del buffer del hub
+            long start = cursorRepository.findById(nodeConsumer)
+                .map(OutboxCursor::getPosition)
+                .orElseGet(outboxRepository::findMaxId);
+            saveCursor(nodeConsumer, start);
+            return start;
+        });
+        pushPosition = initPushCursor();
+        lastMaintenance = System.currentTimeMillis();
+        running = true;
+        worker = Thread.ofVirtual().name("call-event-bus").start(this::run);
+        logger.info("Call event bus started as {} at position {} (push at {})", nodeConsumer, localPosition, pushPosition);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public void wakeUp() {
+        wakeUps.release();
+    }
+
+    @Override
+    public void addListener(Consumer<CallEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", "db");
+        stats.put("node", nodeConsumer);
+        stats.put("position", localPosition);
+        stats.put("pushPosition", pushPosition);
+        stats.put("delivered", delivered.sum());
+        stats.put("pushed", pushed.sum());
+        stats.put("pruned", pruned.sum());
+        // ids saltados por huecos más viejos que gap-grace-ms (rollback, o un commit muy lento)
+        stats.put("skippedGapIds", Map.of("local", skippedLocal.sum(), "push", skippedPush.sum()));
+        return stats;
+    }
+
+    private String nodeId() {
+        if (configuredNodeId != null && !configuredNodeId.isBlank()) {
+            return configuredNodeId;
+        }
+        // host + pid: dos instancias en la misma máquina no comparten cursor
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    private long initPushCursor() {
+        try {
+            return transactionTemplate.execute(status -> cursorRepository.findById(PUSH_CONSUMER)
+                .map(OutboxCursor::getPosition)
+                .orElseGet(() -> {
+                    // primer arranque con el bus: heredar la posición del relay anterior
+                    long start = cursorRepository.findById(LEGACY_CONSUMER).map(OutboxCursor::getPosition).orElse(0L);
+                    saveCursor(PUSH_CONSUMER, start);
+                    cursorRepository.deleteById(LEGACY_CONSUMER);
+                    return start;
+                }));
+        } catch (DataIntegrityViolationException e) {
+            // otro nodo lo creó al mismo tiempo
+            return transactionTemplate.execute(status -> cursorRepository.findById(PUSH_CONSUMER)
+                .map(OutboxCursor::getPosition)
+                .orElse(0L));
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                wakeUps.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+                // seguir leyendo mientras los lotes vengan llenos
+                while (running && deliverLocalBatch()) {
+                    // siguiente lote
+                }
+                while (running && pushBatch()) {
+                    // siguiente lote
+                }
+                maintain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Call event bus cycle failed at position {} (push at {})", localPosition, pushPosition, e);
+            }
+        }
+    }
+
+    // Devuelve true si conviene leer otro lote de inmediato
+    private boolean deliverLocalBatch() {
+        long position = localPosition;
+        List<CallOutboxEvent> batch = outboxRepository.findTop200ByIdGreaterThanOrderByIdAsc(position);
+        if (batch.isEmpty()) {
+            return false;
+        }
+        long upTo = deliverInOrder(batch, position, this::deliverLocally, skippedLocal, nodeConsumer);
+        if (upTo == position) {
+            return false;
+        }
+        localPosition = upTo;
+        transactionTemplate.executeWithoutResult(status -> saveCursor(nodeConsumer, upTo));
+        return isFullyDelivered(batch, upTo);
+    }
+
+    private boolean pushBatch() {
+        // nada nuevo desde lo último que vio este nodo: no hace falta tomar el cursor
+        if (!outboxRepository.existsByIdGreaterThan(pushPosition)) {
+            return false;
+        }
+        Boolean more = transactionTemplate.execute(status -> {
+            // el bloqueo serializa a los nodos: quien lo tiene envía ese tramo y avanza el cursor
+            OutboxCursor cursor = cursorRepository.lockByConsumer(PUSH_CONSUMER).orElse(null);
+            if (cursor == null) {
+                return false;
+            }
+            long position = cursor.getPosition();
+            List<CallOutboxEvent> batch = outboxRepository.findTop200ByIdGreaterThanOrderByIdAsc(position);
+            long upTo = batch.isEmpty() ? position : deliverInOrder(batch, position, this::deliverPush, skippedPush, PUSH_CONSUMER);
+            pushPosition = upTo;
+            if (upTo == position) {
+                return false;
+            }
+            cursor.setPosition(upTo);
+            cursor.setUpdatedAt(LocalDateTime.now());
+            return isFullyDelivered(batch, upTo);
+        });
+        return Boolean.TRUE.equals(more);
+    }
+
+    // Entrega en orden de id y devuelve el último id entregado; se detiene ante un hueco reciente
+    // (transacción anterior aún sin confirmar) o si el destino rechaza el evento (cola llena).
+    // Un hueco viejo se salta, pero queda en el log y en las estadísticas: si la fila aparece
+    // después (commit de más de gap-grace-ms) ya no se entrega
+    private long deliverInOrder(List<CallOutboxEvent> batch, long position, Predicate<CallOutboxEvent> sink,
+                                LongAdder skipped, String consumer) {
+        LocalDateTime graceLimit = LocalDateTime.now().minusNanos(gapGraceMillis * 1_000_000);
+        long upTo = position;
+        for (CallOutboxEvent row : batch) {
+            long gap = row.getId() - upTo - 1;
+            if (gap > 0 && row.getCreatedAt().isAfter(graceLimit)) {
+                break;
+            }
+            if (!sink.test(row)) {
+                break;
+            }
+            if (gap > 0) {
+                skipped.add(gap);
+                logger.warn("Outbox consumer {} skipped ids {}..{}: gap older than {} ms", consumer, upTo + 1,
+                    row.getId() - 1, gapGraceMillis);
+            }
+            upTo = row.getId();
+        }
+        return upTo;
+    }
+
+    private static boolean isFullyDelivered(List<CallOutboxEvent> batch, long upTo) {
+        return batch.size() == BATCH_SIZE && batch.get(batch.size() - 1).getId() == upTo;
+    }
+
+    private boolean deliverLocally(CallOutboxEvent row) {
+        CallEvent event = readEvent(row);
+        if (event == null) {
+            return true;
+        }
+        if (CallEvent.ROUTING_CHANGED.equals(event.getType())) {
+            // asignaciones cambiadas en otro nodo (en el de origen ya se aplicaron tras el commit)
+            routingIndex.rebuild();
+            return true;
+        }
+        if (CallEvent.PUSH_SUBSCRIPTIONS_CHANGED.equals(event.getType())) {
+            subscriptionRegistry.reloadNurse(event.getNurseId());
+            return true;
+        }
+        if (!notificationDispatcher.enqueueLocal(event)) {
+            return false;
+        }
+        for (Consumer<CallEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                logger.error("Call event listener failed for {} of call {}", event.getType(), event.getCallId(), e);
+            }
+        }
+        if (CallEvent.ACKNOWLEDGED.equals(event.getType())) {
+            responseTimeStats.record(event);
+        }
+        delivered.increment();
+        return true;
+    }
+
+    private boolean deliverPush(CallOutboxEvent row) {
+        if (row.getPushTitle() == null) {
+            return true;
+        }
+        CallEvent event = readEvent(row);
+        if (event == null) {
+            return true;
+        }
+        if (!notificationDispatcher.enqueuePush(event, row.getPushTitle(), row.getPushBody())) {
+            return false;
+        }
+        pushed.increment();
+        return true;
+    }
+
+    // Latido del cursor de este nodo, descarte de nodos caídos y poda del outbox
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        if (now - lastMaintenance < nodeTimeoutSeconds * 1000 / 4) {
+            return;
+        }
+        lastMaintenance = now;
+        transactionTemplate.executeWithoutResult(status -> {
+            saveCursor(nodeConsumer, localPosition);
+            int stale = cursorRepository.deleteStale(NODE_PREFIX + "%", LocalDateTime.now().minusSeconds(nodeTimeoutSeconds));
+            if (stale > 0) {
+                logger.info("Dropped {} stale call event bus node cursor(s)", stale);
+            }
+            Long floor = cursorRepository.findMinPosition();
+            if (floor != null && floor > 0) {
+                pruned.add(outboxRepository.deleteUpTo(floor));
+            }
+        });
+    }
+
+    private void saveCursor(String consumer, long position) {
+        OutboxCursor cursor = cursorRepository.findById(consumer).orElseGet(() -> {
+            OutboxCursor c = new OutboxCursor();
+            c.setConsumer(consumer);
+            return c;
+        });
+        cursor.setPosition(position);
+        cursor.setUpdatedAt(LocalDateTime.now());
+        cursorRepository.save(cursor);
+    }
+
+    private CallEvent readEvent(CallOutboxEvent row) {
+        try {
+            return objectMapper.readValue(row.getPayload(), CallEvent.class);
+        } catch (Exception e) {
+            // no bloquear el outbox por una fila dañada
+            logger.error("Skipping unreadable outbox event {}", row.getId(), e);
+            return null;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.hospital.service;
 
 import com.hospital.dto.BedDTO;
+import com.hospital.dto.CallEvent;
 import com.hospital.dto.IslandDTO;
 import com.hospital.model.Bed;
 import com.hospital.model.Island;
 import com.hospital.repository.BedRepository;
 import com.hospital.repository.IslandRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +27,12 @@ public class IslandService {
     @Autowired
     private QRCodeService qrCodeService;
     
+    @Autowired
+    private NurseRoutingIndex routingIndex;
+    
+    @Autowired
+    private CallOutbox callOutbox;
+    
     public List<IslandDTO> getAllIslands() {
         return islandRepository.findAll().stream()
             .map(this::convertToDTO)
@@ -72,6 +80,8 @@ public class IslandService {
         Island island = islandRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Isla no encontrada"));
         islandRepository.delete(island);
+        routingIndex.removeIslandAfterCommit(id);
+        callOutbox.record(CallEvent.routingChanged(), null, null);
     }
     
     @Transactional
@@ -88,6 +98,8 @@ public class IslandService {
         bed.setIsland(island);
         
         Bed savedBed = bedRepository.save(bed);
+        routingIndex.addBedAfterCommit(savedBed.getId(), island.getId());
+        callOutbox.record(CallEvent.routingChanged(), null, null);
         
         // Generar QR code
         qrCodeService.generateQRCodeString(savedBed);
@@ -95,6 +107,17 @@ public class IslandService {
         return convertBedToDTO(savedBed);
     }
     
+    // Hojas de etiquetas QR: nombre de la isla y sus camas [id, número] por páginas, por proyección
+    public String getIslandName(Long id) {
+        return islandRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Isla no encontrada: " + id))
+            .getName();
+    }
+
+    public List<Object[]> getBedIdsAndNumbers(Long islandId, Long afterBedId, int limit) {
+        return bedRepository.findIdAndNumberByIslandIdAfter(islandId, afterBedId, PageRequest.of(0, limit));
+    }
+    
     private IslandDTO convertToDTO(Island island) {
         IslandDTO dto = new IslandDTO();
         dto.setId(island.getId());
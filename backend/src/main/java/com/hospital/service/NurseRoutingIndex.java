@@ -0,0 +1,257 @@
+package com.hospital.service;
+
+import com.hospital.repository.BedRepository;
+import com.hospital.repository.NurseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Índice en memoria cama -> enfermero responsable (con respaldo por isla), y usuario -> enfermero.
+// Se construye al arrancar con consultas de proyección y se actualiza de forma incremental
+// cuando se confirman cambios de asignación o altas de enfermeros (en los demás nodos, con
+// ROUTING_CHANGED), de modo que createCall y los sondeos no tocan las tablas nurses /
+// nurse_beds / nurse_islands.
+@Component
+public class NurseRoutingIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NurseRoutingIndex.class);
+
+    @Autowired
+    private NurseRepository nurseRepository;
+
+    @Autowired
+    private BedRepository bedRepository;
+
+    // Lo que leen los llamados: mapas inmutables publicados de una sola vez (lectura sin bloqueo,
+    // nunca a medio reconstruir). Los valores son listas ordenadas por id de enfermero.
+    private record Routes(Map<Long, List<Long>> nursesByBed, Map<Long, List<Long>> nursesByIsland,
+                          Map<Long, Long> islandByBed, Map<Long, Long> nurseByUser, Set<Long> nurseIds) {}
+
+    private volatile Routes routes = new Routes(Map.of(), Map.of(), Map.of(), Map.of(), Set.of());
+
+    // Estado de trabajo para las actualizaciones (protegido por 'this'); cada cambio se publica
+    // como una copia nueva en 'routes'
+    private Map<Long, List<Long>> nursesByBed = new HashMap<>();
+    private Map<Long, List<Long>> nursesByIsland = new HashMap<>();
+    private Map<Long, Long> islandByBed = new HashMap<>();
+    private Map<Long, Long> nurseByUser = new HashMap<>();
+    private Set<Long> nurseIds = new HashSet<>();
+    // Vista inversa para poder retirar asignaciones antiguas
+    private Map<Long, Set<Long>> bedsByNurse = new HashMap<>();
+    private Map<Long, Set<Long>> islandsByNurse = new HashMap<>();
+
+    // Se arma en mapas nuevos y se publica al final: un createCall concurrente sigue usando el
+    // índice anterior mientras tanto
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Map<Long, List<Long>> byBed = new HashMap<>();
+        Map<Long, List<Long>> byIsland = new HashMap<>();
+        Map<Long, Long> islands = new HashMap<>();
+        Map<Long, Set<Long>> bedsOfNurse = new HashMap<>();
+        Map<Long, Set<Long>> islandsOfNurse = new HashMap<>();
+        Map<Long, Long> users = new HashMap<>();
+        Set<Long> nurses = new HashSet<>();
+
+        for (Object[] row : bedRepository.findAllBedIslandIds()) {
+            if (row[1] != null) { // Map.copyOf no admite nulos
+                islands.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        for (Object[] row : nurseRepository.findAllBedAssignments()) {
+            bedsOfNurse.computeIfAbsent((Long) row[0], k -> new LinkedHashSet<>()).add((Long) row[1]);
+        }
+        for (Object[] row : nurseRepository.findAllIslandAssignments()) {
+            islandsOfNurse.computeIfAbsent((Long) row[0], k -> new LinkedHashSet<>()).add((Long) row[1]);
+        }
+        for (Object[] row : nurseRepository.findAllUserIds()) {
+            nurses.add((Long) row[0]);
+            if (row[1] != null) {
+                users.put((Long) row[1], (Long) row[0]);
+            }
+        }
+        bedsOfNurse.forEach((nurseId, beds) -> beds.forEach(bedId -> link(byBed, bedId, nurseId)));
+        islandsOfNurse.forEach((nurseId, isl) -> isl.forEach(islandId -> link(byIsland, islandId, nurseId)));
+
+        nursesByBed = byBed;
+        nursesByIsland = byIsland;
+        islandByBed = islands;
+        bedsByNurse = bedsOfNurse;
+        islandsByNurse = islandsOfNurse;
+        nurseByUser = users;
+        nurseIds = nurses;
+        publish();
+
+        logger.info("Nurse routing index built: {} beds, {} direct bed routes, {} island routes",
+            islands.size(), byBed.size(), byIsland.size());
+    }
+
+    // O(1): primero la asignación directa de la cama, después el primer enfermero de su isla
+    public Optional<Long> resolveNurseId(Long bedId) {
+        Routes current = routes;
+        List<Long> direct = current.nursesByBed().get(bedId);
+        if (direct != null && !direct.isEmpty()) {
+            return Optional.of(direct.get(0));
+        }
+        Long islandId = current.islandByBed().get(bedId);
+        if (islandId != null) {
+            List<Long> byIsland = current.nursesByIsland().get(islandId);
+            if (byIsland != null && !byIsland.isEmpty()) {
+                return Optional.of(byIsland.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // UserID o NurseID -> id real del enfermero (primero como usuario, igual que NurseService)
+    public Optional<Long> resolveUserOrNurseId(Long userIdOrNurseId) {
+        Routes current = routes;
+        Long byUser = current.nurseByUser().get(userIdOrNurseId);
+        if (byUser != null) {
+            return Optional.of(byUser);
+        }
+        return current.nurseIds().contains(userIdOrNurseId) ? Optional.of(userIdOrNurseId) : Optional.empty();
+    }
+
+    public Optional<Long> getIslandId(Long bedId) {
+        return Optional.ofNullable(routes.islandByBed().get(bedId));
+    }
+
+    public List<Long> getNurseIdsForIsland(Long islandId) {
+        return routes.nursesByIsland().getOrDefault(islandId, List.of());
+    }
+
+    // Los cambios solo se publican cuando la transacción que los produjo confirma
+    public void updateNurseAfterCommit(Long nurseId, Collection<Long> bedIds, Collection<Long> islandIds) {
+        List<Long> beds = bedIds != null ? new ArrayList<>(bedIds) : null;
+        List<Long> islands = islandIds != null ? new ArrayList<>(islandIds) : null;
+        afterCommit(() -> updateNurse(nurseId, beds, islands));
+    }
+
+    public void addNurseAfterCommit(Long nurseId, Long userId) {
+        afterCommit(() -> addNurse(nurseId, userId));
+    }
+
+    public void addBedAfterCommit(Long bedId, Long islandId) {
+        afterCommit(() -> addBed(bedId, islandId));
+    }
+
+    public void removeIslandAfterCommit(Long islandId) {
+        afterCommit(() -> removeIsland(islandId));
+    }
+
+    synchronized void addNurse(Long nurseId, Long userId) {
+        nurseIds.add(nurseId);
+        if (userId != null) {
+            nurseByUser.put(userId, nurseId);
+        }
+        publish();
+    }
+
+    synchronized void addBed(Long bedId, Long islandId) {
+        if (islandId != null) {
+            islandByBed.put(bedId, islandId);
+            publish();
+        }
+    }
+
+    // null = sin cambios para esa colección (igual que en NurseService)
+    synchronized void updateNurse(Long nurseId, List<Long> bedIds, List<Long> islandIds) {
+        if (bedIds != null) {
+            Set<Long> old = bedsByNurse.remove(nurseId);
+            if (old != null) {
+                old.forEach(bedId -> unlink(nursesByBed, bedId, nurseId));
+            }
+            Set<Long> current = new LinkedHashSet<>(bedIds);
+            if (!current.isEmpty()) {
+                bedsByNurse.put(nurseId, current);
+                current.forEach(bedId -> link(nursesByBed, bedId, nurseId));
+            }
+        }
+        if (islandIds != null) {
+            Set<Long> old = islandsByNurse.remove(nurseId);
+            if (old != null) {
+                old.forEach(islandId -> unlink(nursesByIsland, islandId, nurseId));
+            }
+            Set<Long> current = new LinkedHashSet<>(islandIds);
+            if (!current.isEmpty()) {
+                islandsByNurse.put(nurseId, current);
+                current.forEach(islandId -> link(nursesByIsland, islandId, nurseId));
+            }
+        }
+        publish();
+    }
+
+    synchronized void removeIsland(Long islandId) {
+        List<Long> bedIds = new ArrayList<>();
+        islandByBed.forEach((bedId, isl) -> {
+            if (isl.equals(islandId)) {
+                bedIds.add(bedId);
+            }
+        });
+        for (Long bedId : bedIds) {
+            islandByBed.remove(bedId);
+            List<Long> nurses = nursesByBed.remove(bedId);
+            if (nurses != null) {
+                nurses.forEach(nurseId -> bedsByNurse.getOrDefault(nurseId, new LinkedHashSet<>()).remove(bedId));
+            }
+        }
+        List<Long> nurses = nursesByIsland.remove(islandId);
+        if (nurses != null) {
+            nurses.forEach(nurseId -> islandsByNurse.getOrDefault(nurseId, new LinkedHashSet<>()).remove(islandId));
+        }
+        publish();
+    }
+
+    // Copia inmutable del estado de trabajo; una sola escritura volátil la hace visible entera
+    private void publish() {
+        routes = new Routes(Map.copyOf(nursesByBed), Map.copyOf(nursesByIsland), Map.copyOf(islandByBed),
+            Map.copyOf(nurseByUser), Set.copyOf(nurseIds));
+    }
+
+    private static void link(Map<Long, List<Long>> index, Long key, Long nurseId) {
+        index.compute(key, (k, current) -> {
+            List<Long> next = current != null ? new ArrayList<>(current) : new ArrayList<>();
+            if (!next.contains(nurseId)) {
+                next.add(nurseId);
+                next.sort(null);
+            }
+            return List.copyOf(next);
+        });
+    }
+
+    private static void unlink(Map<Long, List<Long>> index, Long key, Long nurseId) {
+        index.computeIfPresent(key, (k, current) -> {
+            List<Long> next = new ArrayList<>(current);
+            next.remove(nurseId);
+            return next.isEmpty() ? null : List.copyOf(next);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.hospital.dto.CallEvent;
 import com.hospital.dto.IslandDTO;
 import com.hospital.dto.NurseDTO;
 import com.hospital.model.Bed;
@@ -42,6 +43,12 @@ public class NurseService {
     @Autowired
     private PatientRepository patientRepository;
     
+    @Autowired
+    private NurseRoutingIndex routingIndex;
+
+    @Autowired
+    private CallOutbox callOutbox;
+    
     public List<NurseDTO> getAllNurses() {
         return nurseRepository.findAll().stream()
             .map(this::convertToDTO)
@@ -97,7 +104,10 @@ public class NurseService {
         nurse.setLicenseNumber(nurseDTO.getLicenseNumber());
         nurse.setSpecialization(nurseDTO.getSpecialization());
         
-        return convertToDTO(nurseRepository.save(nurse));
+        Nurse saved = nurseRepository.save(nurse);
+        routingIndex.addNurseAfterCommit(saved.getId(), user.getId());
+        callOutbox.record(CallEvent.routingChanged(), null, null);
+        return convertToDTO(saved);
     }
     
     @Transactional
@@ -110,12 +120,16 @@ public class NurseService {
         nurse.setLicenseNumber(nurseDTO.getLicenseNumber());
         nurse.setSpecialization(nurseDTO.getSpecialization());
         
+        List<Long> routedIslandIds = null;
+        List<Long> routedBedIds = null;
+        
         // Actualizar islas si se proporcionan
         if (nurseDTO.getAssignedIslands() != null && !nurseDTO.getAssignedIslands().isEmpty()) {
             List<Island> islands = islandRepository.findAllById(
                 nurseDTO.getAssignedIslands().stream().map(IslandDTO::getId).collect(java.util.stream.Collectors.toList())
             );
             nurse.setAssignedIslands(islands);
+            routedIslandIds = islands.stream().map(Island::getId).collect(Collectors.toList());
         }
         
         // Actualizar camas si se proporcionan
@@ -124,9 +138,13 @@ public class NurseService {
                 nurseDTO.getAssignedBeds().stream().map(com.hospital.dto.BedDTO::getId).collect(java.util.stream.Collectors.toList())
             );
             nurse.setAssignedBeds(beds);
+            routedBedIds = beds.stream().map(Bed::getId).collect(Collectors.toList());
         }
         
-        return convertToDTO(nurseRepository.save(nurse));
+        Nurse saved = nurseRepository.save(nurse);
+        routingIndex.updateNurseAfterCommit(saved.getId(), routedBedIds, routedIslandIds);
+        callOutbox.record(CallEvent.routingChanged(), null, null);
+        return convertToDTO(saved);
     }
     
     @Transactional
@@ -136,17 +154,25 @@ public class NurseService {
             .orElseGet(() -> nurseRepository.findByUserId(id)
                 .orElseThrow(() -> new RuntimeException("Enfermero no encontrado con ID: " + id)));
 
+        List<Long> routedIslandIds = null;
+        List<Long> routedBedIds = null;
+
         if (islandIds != null) {
             List<Island> islands = islandRepository.findAllById(islandIds);
             nurse.setAssignedIslands(islands);
+            routedIslandIds = islands.stream().map(Island::getId).collect(Collectors.toList());
         }
 
         if (bedIds != null) {
             List<Bed> beds = bedRepository.findAllById(bedIds);
             nurse.setAssignedBeds(beds);
+            routedBedIds = beds.stream().map(Bed::getId).collect(Collectors.toList());
         }
 
-        return convertToDTO(nurseRepository.save(nurse));
+        Nurse saved = nurseRepository.save(nurse);
+        routingIndex.updateNurseAfterCommit(saved.getId(), routedBedIds, routedIslandIds);
+        callOutbox.record(CallEvent.routingChanged(), null, null);
+        return convertToDTO(saved);
     }
 
     // Obtener camas asignadas a un enfermero
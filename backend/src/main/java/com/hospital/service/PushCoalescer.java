@@ -0,0 +1,283 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallEvent;
+import com.hospital.util.LogLinearHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Agrupa los push de llamados de un mismo enfermero: el primero abre una ventana de
+// push.coalesce.window-ms y todo lo que llega en ella sale en una sola notificación
+// ("3 pacientes llamando: camas 4, 7, 12"). La ventana no se extiende, así que el primer llamado
+// se demora como mucho window-ms; con max-batch llamados se envía antes.
+// Todas las notificaciones de un enfermero usan el mismo Topic / tag: si el servicio de push
+// todavía no entregó la anterior, la reemplaza, por eso cada una lista también los llamados ya
+// notificados dentro del TTL del push que siguen abiertos (atendidos, vencidos o reasignados
+// se quitan al ver su evento).
+// El cierre (observe) llega por el cursor SSE y el alta (submit) por el de push, que puede ir
+// detrás: un llamado cerrado dentro del mismo sondeo llegaría a submit después de su cierre. Por
+// eso observe deja una lápida (enfermero, llamado) que submit consulta; viven lo que el TTL del
+// push, después un push tardío ya no sirve de todos modos.
+@Component
+public class PushCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushCoalescer.class);
+    private static final Set<String> CLOSING_EVENTS = Set.of(CallEvent.ACKNOWLEDGED, CallEvent.EXPIRED, CallEvent.REASSIGNED);
+    private static final int MAX_OUTSTANDING = 50;
+    private static final int MAX_TOMBSTONES = 10_000;
+
+    @Autowired
+    private PushService pushService;
+
+    @Value("${push.coalesce.window-ms:250}")
+    private long windowMs;
+
+    @Value("${push.coalesce.max-batch:20}")
+    private int maxBatch;
+
+    @Value("${push.coalesce.max-beds-listed:10}")
+    private int maxBedsListed;
+
+    @Value("${push.ttl-seconds:120}")
+    private int ttlSeconds;
+
+    private final ConcurrentHashMap<Long, NurseBatch> batches = new ConcurrentHashMap<>();
+    // (enfermero, llamado) cerrados -> cuándo; en orden de llegada, protegido por sí mismo
+    private final LinkedHashMap<Tombstone, Long> closed = new LinkedHashMap<>();
+    private ScheduledExecutorService timer;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder callsIn = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder droppedBeforeSend = new LongAdder();
+    private final LongAdder droppedClosed = new LongAdder();
+    private final LongAdder requestsSent = new LongAdder();
+    private final LongAdder requestsSaved = new LongAdder();
+    private final AtomicLong maxBatchSeen = new AtomicLong();
+    private final LogLinearHistogram addedLatencyMillis = new LogLinearHistogram();
+
+    private record Pending(Long callId, String bedNumber, String title, String body, long arrivedAt) {}
+
+    private record Outstanding(String bedNumber, long notifiedAt) {}
+
+    // Reasignado: solo se cierra para el enfermero anterior, el nuevo sí recibe el push
+    private record Tombstone(Long nurseId, Long callId) {}
+
+    private record Flush(List<Pending> calls, String title, String body) {}
+
+    // Estado de un enfermero; solo se toca dentro de batches.compute*, que lo serializa
+    private static final class NurseBatch {
+        final List<Pending> pending = new ArrayList<>();
+        final LinkedHashMap<Long, Outstanding> outstanding = new LinkedHashMap<>();
+        boolean scheduled;
+
+        boolean isIdle() {
+            return pending.isEmpty() && outstanding.isEmpty() && !scheduled;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "push-coalesce");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    // Push de un llamado para event.getNurseId(); sale al cerrar la ventana de ese enfermero
+    public boolean submit(CallEvent event, String title, String body) {
+        Long nurseId = event.getNurseId();
+        if (isClosed(nurseId, event.getCallId())) {
+            droppedClosed.increment();
+            return false;
+        }
+        if (windowMs <= 0) {
+            return pushService.sendPushToNurse(nurseId, title, body);
+        }
+        callsIn.increment();
+        Pending call = new Pending(event.getCallId(), event.getBedNumber(), title, body, System.nanoTime());
+        boolean[] openWindow = new boolean[1];
+        boolean[] full = new boolean[1];
+        boolean[] dropped = new boolean[1];
+        batches.compute(nurseId, (id, batch) -> {
+            // otra vez dentro de compute: un observe concurrente deja la lápida antes de tocar el
+            // lote, así que o se ve aquí o su computeIfPresent quita este llamado después
+            if (isClosed(nurseId, call.callId())) {
+                dropped[0] = true;
+                return batch;
+            }
+            if (batch == null) {
+                batch = new NurseBatch();
+            }
+            batch.pending.removeIf(p -> p.callId() != null && p.callId().equals(call.callId()));
+            batch.pending.add(call);
+            if (!batch.scheduled) {
+                batch.scheduled = true;
+                openWindow[0] = true;
+            }
+            full[0] = batch.pending.size() >= maxBatch;
+            return batch;
+        });
+        if (dropped[0]) {
+            droppedClosed.increment();
+            return false;
+        }
+        if (full[0]) {
+            // el timer de la ventana sigue programado: al dispararse encuentra la lista vacía o
+            // cierra antes una ventana nueva, nunca demora más
+            senders.execute(() -> flush(nurseId));
+        } else if (openWindow[0]) {
+            timer.schedule(() -> senders.execute(() -> flush(nurseId)), windowMs, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    // Eventos de llamados (los ve cada nodo): un llamado cerrado o reasignado deja de listarse,
+    // y si todavía esperaba en la ventana ya no se envía
+    public void observe(CallEvent event) {
+        if (event.getNurseId() == null || event.getCallId() == null || !CLOSING_EVENTS.contains(event.getType())) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (closed) {
+            Iterator<Long> oldest = closed.values().iterator();
+            while (oldest.hasNext()) {
+                long closedAt = oldest.next();
+                if (closed.size() < MAX_TOMBSTONES && now - closedAt <= ttlSeconds * 1000L) {
+                    break;
+                }
+                oldest.remove();
+            }
+            closed.put(new Tombstone(event.getNurseId(), event.getCallId()), now);
+        }
+        batches.computeIfPresent(event.getNurseId(), (id, batch) -> {
+            batch.outstanding.remove(event.getCallId());
+            if (batch.pending.removeIf(p -> event.getCallId().equals(p.callId()))) {
+                droppedBeforeSend.increment();
+            }
+            return batch.isIdle() ? null : batch;
+        });
+    }
+
+    private boolean isClosed(Long nurseId, Long callId) {
+        if (callId == null) {
+            return false;
+        }
+        synchronized (closed) {
+            return closed.containsKey(new Tombstone(nurseId, callId));
+        }
+    }
+
+    private void flush(Long nurseId) {
+        Flush[] out = new Flush[1];
+        long now = System.currentTimeMillis();
+        batches.computeIfPresent(nurseId, (id, batch) -> {
+            batch.scheduled = false;
+            batch.outstanding.values().removeIf(o -> now - o.notifiedAt() > ttlSeconds * 1000L);
+            if (!batch.pending.isEmpty()) {
+                List<Pending> calls = new ArrayList<>(batch.pending);
+                batch.pending.clear();
+                for (Pending p : calls) {
+                    batch.outstanding.remove(p.callId());
+                    batch.outstanding.put(p.callId(), new Outstanding(p.bedNumber(), now));
+                }
+                Iterator<Long> oldest = batch.outstanding.keySet().iterator();
+                while (batch.outstanding.size() > MAX_OUTSTANDING) {
+                    oldest.next();
+                    oldest.remove();
+                }
+                out[0] = compose(calls, batch.outstanding);
+            }
+            return batch.isIdle() ? null : batch;
+        });
+        if (out[0] == null) {
+            return;
+        }
+        Flush f = out[0];
+        long firstArrival = f.calls().get(0).arrivedAt();
+        synchronized (addedLatencyMillis) {
+            addedLatencyMillis.record((System.nanoTime() - firstArrival) / 1_000_000);
+        }
+        maxBatchSeen.accumulateAndGet(f.calls().size(), Math::max);
+        try {
+            int subscriptions = pushService.sendToNurse(nurseId, f.title(), f.body(), topic(nurseId));
+            notifications.increment();
+            requestsSent.add(subscriptions);
+            // cada push evitado ahorra un cifrado y una petición por suscripción
+            requestsSaved.add((long) (f.calls().size() - 1) * subscriptions);
+        } catch (Exception e) {
+            logger.warn("Coalesced push for nurse {} failed: {}", nurseId, e.getMessage());
+        }
+    }
+
+    private Flush compose(List<Pending> calls, LinkedHashMap<Long, Outstanding> outstanding) {
+        Pending last = calls.get(calls.size() - 1);
+        if (outstanding.size() <= 1) {
+            return new Flush(calls, last.title(), last.body());
+        }
+        List<String> beds = new ArrayList<>();
+        outstanding.values().forEach(o -> beds.add(o.bedNumber()));
+        StringBuilder body = new StringBuilder()
+            .append(beds.size()).append(" pacientes llamando: camas ")
+            .append(String.join(", ", beds.subList(0, Math.min(beds.size(), maxBedsListed))));
+        if (beds.size() > maxBedsListed) {
+            body.append(" y ").append(beds.size() - maxBedsListed).append(" más");
+        }
+        return new Flush(calls, last.title(), body.toString());
+    }
+
+    // Topic del Web Push: hasta 32 caracteres del alfabeto base64url
+    private static String topic(Long nurseId) {
+        return "calls-nurse-" + nurseId;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowMs", windowMs);
+        stats.put("maxBatch", maxBatch);
+        stats.put("openBatches", batches.size());
+        stats.put("calls", callsIn.sum());
+        stats.put("notifications", notifications.sum());
+        stats.put("droppedBeforeSend", droppedBeforeSend.sum());
+        stats.put("droppedClosed", droppedClosed.sum());
+        synchronized (closed) {
+            stats.put("tombstones", closed.size());
+        }
+        stats.put("maxCallsPerNotification", maxBatchSeen.get());
+        stats.put("requestsSent", requestsSent.sum());
+        stats.put("requestsSaved", requestsSaved.sum());
+        synchronized (addedLatencyMillis) {
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50Ms", addedLatencyMillis.percentile(50));
+            latency.put("p99Ms", addedLatencyMillis.percentile(99));
+            latency.put("maxMs", addedLatencyMillis.getMax());
+            stats.put("addedLatency", latency);
+        }
+        return stats;
+    }
+}
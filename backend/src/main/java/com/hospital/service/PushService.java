@@ -1,18 +1,13 @@
 package com.hospital.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hospital.model.PushSubscription;
-import com.hospital.model.Nurse;
 import com.hospital.repository.PushSubscriptionRepository;
-import com.hospital.repository.NurseRepository;
-import nl.martijndwars.webpush.Notification;
-import nl.martijndwars.webpush.Utils;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-import java.security.Security;
-import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,36 +18,79 @@ public class PushService {
     private PushSubscriptionRepository pushRepo;
 
     @Autowired
-    private NurseRepository nurseRepository;
-
-    private String publicKey;
-    private String privateKey;
-    private nl.martijndwars.webpush.PushService webPushService;
-
-    @PostConstruct
-    public void init() throws Exception {
-        Security.addProvider(new BouncyCastleProvider());
-        // TODO: Configurar VAPID keys para notificaciones push
-        // Por ahora, las notificaciones push están deshabilitadas
-        System.out.println("Push notification service initialized (keys not configured)");
-    }
+    private PushSubscriptionRegistry registry;
 
-    public String getPublicKey() {
-        return publicKey;
-    }
+    @Autowired
+    private WebPushSender sender;
 
-    public PushSubscription saveSubscription(Long nurseId, PushSubscription sub) {
-        Nurse nurse = nurseRepository.findById(nurseId).orElse(null);
-        sub.setNurse(nurse);
-        return pushRepo.save(sub);
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public String getPublicKey() {
+        return sender.getPublicKey();
     }
 
     public List<PushSubscription> getSubscriptionsForNurse(Long nurseId) {
         return pushRepo.findByNurseId(nurseId);
     }
 
-    public void sendPushToNurse(Long nurseId, String title, String body) {
-        // TODO: Implementar envío de notificaciones push cuando se configuren las keys
-        System.out.println("Push notification requested for nurse " + nurseId + ": " + title + " - " + body);
+    // Encola un push por cada suscripción del enfermero (el envío es asíncrono, ver WebPushSender).
+    // Devuelve false si no tiene suscripciones o no se pudo encolar ninguno.
+    public boolean sendPushToNurse(Long nurseId, String title, String body) {
+        return sendToNurse(nurseId, title, body, null) > 0;
+    }
+
+    // Igual, con Topic: el servicio de push reemplaza un mensaje aún no entregado del mismo topic
+    // (y el service worker la notificación visible con el mismo tag). Devuelve a cuántas
+    // suscripciones se encoló. Las suscripciones salen del registro en memoria, sin tocar la BD.
+    public int sendToNurse(Long nurseId, String title, String body, String topic) {
+        List<PushTarget> targets = registry.targets(nurseId);
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        byte[] payload = payload(title, body, topic);
+        int queued = 0;
+        for (PushTarget target : targets) {
+            if (sender.submit(target, payload, topic)) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    // Prueba de carga de la entrega: 'count' pushes a cada suscripción del enfermero.
+    // Devuelve cuántos se encolaron.
+    public int sendTest(Long nurseId, int count) {
+        int queued = 0;
+        for (int i = 1; i <= count; i++) {
+            byte[] payload = payload("Prueba de notificación", "Envío " + i + " de " + count, null);
+            for (PushTarget target : registry.targets(nurseId)) {
+                if (sender.submit(target, payload, null)) {
+                    queued++;
+                }
+            }
+        }
+        return queued;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = sender.getStats();
+        stats.put("subscriptions", registry.size());
+        return stats;
+    }
+
+    // Lo que lee el service worker (frontend/public/sw.js)
+    private byte[] payload(String title, String body, String tag) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("title", title);
+        data.put("body", body);
+        if (tag != null) {
+            data.put("tag", tag);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar la notificación", e);
+        }
     }
 }
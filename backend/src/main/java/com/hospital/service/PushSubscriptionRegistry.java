@@ -0,0 +1,172 @@
+package com.hospital.service;
+
+import com.hospital.model.Nurse;
+import com.hospital.model.PushSubscription;
+import com.hospital.repository.PushSubscriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Suscripciones push en memoria, por enfermero, con las claves ya decodificadas (PushTarget):
+// el envío no lee push_subscriptions ni parsea claves. Se carga al arrancar con una consulta de
+// proyección; las altas y bajas escriben la tabla (una fila por endpoint, upsert por
+// endpoint_hash) y actualizan la memoria tras el commit. En los demás nodos llega como evento
+// PUSH_SUBSCRIPTIONS_CHANGED y se recarga solo ese enfermero. Una baja por 404/410 se aplica en
+// el nodo que la vio; los otros borran la suya al recibir el mismo 410.
+@Component
+public class PushSubscriptionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushSubscriptionRegistry.class);
+
+    @Autowired
+    private PushSubscriptionRepository pushRepo;
+
+    // Lecturas sin bloqueo; los valores son listas inmutables
+    private final Map<Long, List<PushTarget>> targetsByNurse = new ConcurrentHashMap<>();
+
+    // Vista inversa para las bajas por id (protegida por 'this')
+    private final Map<Long, Long> nurseBySubscription = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        targetsByNurse.clear();
+        nurseBySubscription.clear();
+        Map<Long, List<PushTarget>> loaded = new HashMap<>();
+        int invalid = 0;
+        for (Object[] row : pushRepo.findAllKeys()) {
+            Long id = (Long) row[0];
+            Long nurseId = (Long) row[1];
+            try {
+                PushTarget target = PushTarget.of(id, (String) row[2], (String) row[3], (String) row[4]);
+                loaded.computeIfAbsent(nurseId, k -> new ArrayList<>()).add(target);
+                nurseBySubscription.put(id, nurseId);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                invalid++;
+            }
+        }
+        loaded.forEach((nurseId, targets) -> targetsByNurse.put(nurseId, List.copyOf(targets)));
+        logger.info("Push subscription registry loaded: {} subscriptions for {} nurses ({} with invalid keys skipped)",
+            nurseBySubscription.size(), targetsByNurse.size(), invalid);
+    }
+
+    // Resultado de upsert: id de la fila y el enfermero que tenía el endpoint antes, si era otro
+    public record Upsert(Long subscriptionId, Long previousNurseId) {}
+
+    public List<PushTarget> targets(Long nurseId) {
+        return targetsByNurse.getOrDefault(nurseId, List.of());
+    }
+
+    // Alta o actualización de la suscripción de un endpoint (el navegador vuelve a suscribirse con
+    // el mismo endpoint y, a veces, claves nuevas)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Upsert upsert(Nurse nurse, String endpoint, String p256dh, String auth) throws GeneralSecurityException {
+        // claves inválidas se rechazan aquí y no en cada envío
+        PushTarget.of(null, endpoint, p256dh, auth);
+        String hash = endpointHash(endpoint);
+        PushSubscription row = pushRepo.findByEndpointHash(hash).orElseGet(PushSubscription::new);
+        Long previousNurseId = row.getNurse() != null ? row.getNurse().getId() : null;
+        row.setNurse(nurse);
+        row.setEndpoint(endpoint);
+        row.setEndpointHash(hash);
+        row.setP256dh(p256dh);
+        row.setAuth(auth);
+        PushSubscription saved = pushRepo.save(row);
+        PushTarget target = PushTarget.of(saved.getId(), endpoint, p256dh, auth);
+        afterCommit(() -> put(nurse.getId(), target));
+        return new Upsert(saved.getId(), previousNurseId != null && !previousNurseId.equals(nurse.getId()) ? previousNurseId : null);
+    }
+
+    // El servicio de push respondió 404 / 410: fuera de la memoria y de la tabla
+    public void remove(Long subscriptionId) {
+        evict(subscriptionId);
+        pushRepo.deleteById(subscriptionId);
+    }
+
+    // Cambio confirmado en otro nodo
+    public void reloadNurse(Long nurseId) {
+        if (nurseId == null) {
+            return;
+        }
+        List<PushTarget> targets = new ArrayList<>();
+        for (PushSubscription sub : pushRepo.findByNurseId(nurseId)) {
+            try {
+                targets.add(PushTarget.from(sub));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                logger.warn("Push subscription {} has invalid keys: {}", sub.getId(), e.getMessage());
+            }
+        }
+        synchronized (this) {
+            nurseBySubscription.values().removeIf(nurseId::equals);
+            targets.forEach(t -> nurseBySubscription.put(t.subscriptionId(), nurseId));
+            if (targets.isEmpty()) {
+                targetsByNurse.remove(nurseId);
+            } else {
+                targetsByNurse.put(nurseId, List.copyOf(targets));
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return nurseBySubscription.size();
+    }
+
+    private synchronized void put(Long nurseId, PushTarget target) {
+        evict(target.subscriptionId());
+        List<PushTarget> next = new ArrayList<>(targets(nurseId));
+        next.add(target);
+        targetsByNurse.put(nurseId, List.copyOf(next));
+        nurseBySubscription.put(target.subscriptionId(), nurseId);
+    }
+
+    private synchronized void evict(Long subscriptionId) {
+        Long nurseId = nurseBySubscription.remove(subscriptionId);
+        if (nurseId == null) {
+            return;
+        }
+        targetsByNurse.computeIfPresent(nurseId, (id, current) -> {
+            List<PushTarget> next = new ArrayList<>(current);
+            next.removeIf(t -> subscriptionId.equals(t.subscriptionId()));
+            return next.isEmpty() ? null : List.copyOf(next);
+        });
+    }
+
+    static String endpointHash(String endpoint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(endpoint.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.hospital.service;
+
+import com.hospital.dto.CallEvent;
+import com.hospital.model.Nurse;
+import com.hospital.repository.NurseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.GeneralSecurityException;
+
+// Alta de suscripciones push desde el navegador. Aparte de PushService porque avisa a los demás
+// nodos por el outbox, y el outbox despierta al bus que termina enviando por PushService.
+@Service
+public class PushSubscriptionService {
+
+    @Autowired
+    private PushSubscriptionRegistry registry;
+
+    @Autowired
+    private NurseRepository nurseRepository;
+
+    @Autowired
+    private CallOutbox callOutbox;
+
+    // Devuelve el id de la suscripción (el mismo si el endpoint ya estaba registrado)
+    @Transactional
+    public Long subscribe(Long nurseId, String endpoint, String p256dh, String auth) {
+        Nurse nurse = nurseRepository.findById(nurseId)
+            .orElseThrow(() -> new RuntimeException("Enfermero no encontrado con ID: " + nurseId));
+        PushSubscriptionRegistry.Upsert result;
+        try {
+            result = registry.upsert(nurse, endpoint, p256dh, auth);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new RuntimeException("Claves de suscripción inválidas: " + e.getMessage());
+        }
+        callOutbox.record(CallEvent.pushSubscriptionsChanged(nurseId), null, null);
+        if (result.previousNurseId() != null) {
+            callOutbox.record(CallEvent.pushSubscriptionsChanged(result.previousNurseId()), null, null);
+        }
+        return result.subscriptionId();
+    }
+}
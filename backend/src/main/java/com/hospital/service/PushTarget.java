@@ -0,0 +1,25 @@
+package com.hospital.service;
+
+import com.hospital.model.PushSubscription;
+import nl.martijndwars.webpush.Utils;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Base64;
+
+// Destino de un push: endpoint del servicio de push del navegador y claves de la suscripción
+// (p256dh ya decodificada como clave pública EC, auth como bytes), listas para cifrar.
+public record PushTarget(Long subscriptionId, String endpoint, PublicKey userPublicKey, byte[] userAuth) {
+
+    public static PushTarget from(PushSubscription sub) throws GeneralSecurityException {
+        return of(sub.getId(), sub.getEndpoint(), sub.getP256dh(), sub.getAuth());
+    }
+
+    public static PushTarget of(Long subscriptionId, String endpoint, String p256dh, String auth) throws GeneralSecurityException {
+        if (endpoint == null || p256dh == null || auth == null) {
+            throw new GeneralSecurityException("Suscripción incompleta");
+        }
+        return new PushTarget(subscriptionId, endpoint, Utils.loadPublicKey(p256dh),
+            Base64.getUrlDecoder().decode(auth.trim().replace('+', '-').replace('/', '_').replace("=", "")));
+    }
+}
@@ -3,7 +3,6 @@ package com.hospital.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import com.hospital.dto.QRCodeData;
@@ -11,12 +10,24 @@ import com.hospital.model.Bed;
 import com.hospital.model.Patient;
 import com.hospital.model.Nurse;
 import com.hospital.repository.BedRepository;
+import com.hospital.util.BitMatrixImageWriter;
+import com.hospital.util.ByteBudgetLruCache;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -27,19 +38,117 @@ public class QRCodeService {
     
     @Autowired
     private ObjectMapper objectMapper;
-    
+
+    // Cambiarlo si cambia cómo se dibuja la imagen: invalida los ETag emitidos
+    private static final String RENDER_VERSION = "bits1-1";
+
+    public static final int DEFAULT_SIZE = 300;
+    public static final String PNG = "png";
+    public static final String SVG = "svg";
+
+    @Value("${qr.cache.max-bytes:8388608}")
+    private long cacheMaxBytes;
+
+    // Imagen ya generada de cada cama (tamaño por defecto) con la versión del contenido del que salió
+    private ByteBudgetLruCache<Long, QRImage> imageCache;
+
+    // JSON que va en el QR y su versión (hash): cambia con el token o con los datos de paciente / enfermero
+    public record QRContent(String json, String version) {
+
+        // ETag fuerte de una representación (data URL, PNG o SVG de cierto tamaño)
+        public String etag(String variant) {
+            return "\"" + version + "-" + variant + "\"";
+        }
+
+        public static boolean matches(String etag, String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals(etag) || tag.equals("*")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public record QRImage(String version, byte[] png, String dataUrl) {}
+
+    @PostConstruct
+    public void init() {
+        imageCache = new ByteBudgetLruCache<>(cacheMaxBytes, image -> image.png().length + image.dataUrl().length());
+    }
+
     public String generateQRCodeForBed(Bed bed) throws WriterException, IOException {
-        QRCodeData qrData = buildQRCodeData(bed);
-        String jsonData = objectMapper.writeValueAsString(qrData);
-        
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(jsonData, BarcodeFormat.QR_CODE, 300, 300);
-        
-        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
+        return renderForBed(bed).dataUrl();
+    }
+
+    public QRContent contentFor(Bed bed) throws IOException {
+        String jsonData = objectMapper.writeValueAsString(buildQRCodeData(bed));
+        return new QRContent(jsonData, contentVersion(jsonData));
+    }
+
+    public QRImage renderForBed(Bed bed) throws WriterException, IOException {
+        return render(bed.getId(), contentFor(bed));
+    }
+
+    // Solo vuelve a codificar / dibujar si el contenido cambió desde la última vez
+    public QRImage render(Long bedId, QRContent content) throws WriterException, IOException {
+        QRImage cached = imageCache.get(bedId);
+        if (cached != null && cached.version().equals(content.version())) {
+            return cached;
+        }
+        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream(1024);
+        BitMatrixImageWriter.writePng(encode(content), DEFAULT_SIZE, pngOutputStream);
         byte[] pngData = pngOutputStream.toByteArray();
-        
-        return "data:image/png;base64," + Base64.getEncoder().encodeToString(pngData);
+
+        QRImage image = new QRImage(content.version(), pngData, "data:image/png;base64," + Base64.getEncoder().encodeToString(pngData));
+        imageCache.put(bedId, image);
+        return image;
+    }
+
+    // Imagen cruda directo al stream: el PNG del tamaño por defecto sale de la caché, el resto
+    // se dibuja fila por fila sobre 'out'
+    public void writeImage(Long bedId, QRContent content, String format, int size, OutputStream out)
+            throws WriterException, IOException {
+        if (SVG.equals(format)) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            BitMatrixImageWriter.writeSvg(encode(content), size, writer);
+            writer.flush();
+        } else if (size == DEFAULT_SIZE) {
+            out.write(render(bedId, content).png());
+        } else {
+            BitMatrixImageWriter.writePng(encode(content), size, out);
+        }
+    }
+
+    // PNG suelto, sin pasar por la caché (hojas de etiquetas: se llama desde varios hilos)
+    public byte[] renderPng(QRContent content, int size) throws WriterException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        BitMatrixImageWriter.writePng(encode(content), size, out);
+        return out.toByteArray();
+    }
+
+    // Un píxel por módulo (más el margen); BitMatrixImageWriter escala al dibujar
+    private static BitMatrix encode(QRContent content) throws WriterException {
+        return new QRCodeWriter().encode(content.json(), BarcodeFormat.QR_CODE, 0, 0);
+    }
+
+    public Map<String, Object> getImageCacheStats() {
+        return imageCache.getStats();
+    }
+
+    private static String contentVersion(String jsonData) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(RENDER_VERSION.getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest(jsonData.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
     
     public String generateQRCodeString(Bed bed) {
@@ -59,6 +168,8 @@ public class QRCodeService {
             String jsonData = objectMapper.writeValueAsString(qrData);
             managedBed.setQrCodeData(jsonData);
             bedRepository.save(managedBed);
+            // token nuevo: la imagen anterior ya no sirve (la versión de contenido también cambió)
+            imageCache.remove(managedBed.getId());
         } catch (Exception e) {
             throw new RuntimeException("Error al generar datos del QR: " + e.getMessage(), e);
         }
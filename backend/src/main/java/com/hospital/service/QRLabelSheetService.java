@@ -0,0 +1,271 @@
+package com.hospital.service;
+
+import com.hospital.model.Bed;
+import com.hospital.repository.BedRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Etiquetas QR de todas las camas de una o varias islas en un ZIP: un PNG por cama y una hoja
+// imprimible (etiquetas.html, 12 etiquetas por página) que los referencia.
+// - Las camas se recorren por páginas de qr.labels.page-size (por id, consulta de proyección);
+//   los datos de cada cama (QRCodeService.contentFor) se arman en el hilo de la petición,
+//   vaciando el contexto de persistencia entre páginas.
+// - La codificación y el dibujo corren en un ForkJoinPool propio; cada PNG se escribe al ZIP en
+//   cuanto termina (en orden de llegada, el nombre identifica la cama).
+// - etiquetas.html va al final: se escribe directo a su entrada recorriendo otra vez las mismas
+//   páginas, hasta la última cama que recibió imagen.
+// - Como mucho qr.labels.max-in-flight imágenes pendientes o sin escribir por petición y
+//   qr.labels.max-islands islas: la memoria no depende de la cantidad de camas, y un cliente
+//   lento frena la codificación.
+@Service
+public class QRLabelSheetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QRLabelSheetService.class);
+    private static final int LABELS_PER_PAGE = 12;
+
+    @Autowired
+    private IslandService islandService;
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private BedRepository bedRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${qr.labels.parallelism:0}")
+    private int parallelism;
+
+    @Value("${qr.labels.max-in-flight:0}")
+    private int maxInFlight;
+
+    @Value("${qr.labels.page-size:50}")
+    private int pageSize;
+
+    @Value("${qr.labels.max-islands:20}")
+    private int maxIslands;
+
+    private ForkJoinPool pool;
+
+    public record IslandLabels(Long islandId, String islandName) {
+        String path(Long bedId, String bedNumber) {
+            return islandId + "-" + slug(islandName) + "/cama-" + slug(bedNumber) + "-" + bedId + ".png";
+        }
+    }
+
+    // Una página de camas de la isla: [id, número]
+    private interface PageHandler {
+        void accept(List<Object[]> rows) throws IOException;
+    }
+
+    private record Rendered(String path, byte[] png) {}
+
+    @PostConstruct
+    public void init() {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        if (maxInFlight <= 0) {
+            maxInFlight = parallelism * 2;
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public int getMaxIslands() {
+        return maxIslands;
+    }
+
+    // Valida las islas antes de empezar a escribir la respuesta (RuntimeException si falta alguna);
+    // solo los nombres, las camas se leen al escribir
+    public List<IslandLabels> plan(List<Long> islandIds) {
+        List<IslandLabels> islands = new ArrayList<>();
+        for (Long islandId : islandIds.stream().distinct().toList()) {
+            islands.add(new IslandLabels(islandId, islandService.getIslandName(islandId)));
+        }
+        return islands;
+    }
+
+    public void writeZip(List<IslandLabels> islands, int size, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // los PNG ya vienen comprimidos
+        zip.setLevel(Deflater.NO_COMPRESSION);
+
+        CompletionService<Rendered> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Rendered>> pending = new ArrayList<>();
+        // última cama con imagen por isla: la hoja no lista camas creadas mientras tanto
+        Map<Long, Long> lastBedIds = new HashMap<>();
+        int[] inFlight = new int[1];
+        int[] written = new int[1];
+        long start = System.nanoTime();
+        try {
+            for (IslandLabels island : islands) {
+                forEachPage(island, Long.MAX_VALUE, rows -> {
+                    for (Rendering job : loadPage(island, rows)) {
+                        while (inFlight[0] >= maxInFlight) {
+                            writeNext(zip, completion);
+                            inFlight[0]--;
+                            written[0]++;
+                        }
+                        pending.add(completion.submit(() -> new Rendered(job.path(), qrCodeService.renderPng(job.content(), size))));
+                        inFlight[0]++;
+                    }
+                    pending.removeIf(Future::isDone);
+                    lastBedIds.put(island.islandId(), (Long) rows.get(rows.size() - 1)[0]);
+                });
+            }
+            while (inFlight[0] > 0) {
+                writeNext(zip, completion);
+                inFlight[0]--;
+                written[0]++;
+            }
+        } catch (IOException | RuntimeException e) {
+            pending.forEach(f -> f.cancel(true));
+            throw e;
+        }
+
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry("etiquetas.html"));
+        // sin cerrar: cerraría el ZIP
+        Writer html = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+        writeSheet(html, islands, lastBedIds, size);
+        html.flush();
+        zip.closeEntry();
+        zip.finish();
+        logger.info("QR label sheet: {} labels from {} islands in {} ms", written[0], islands.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private record Rendering(String path, QRCodeService.QRContent content) {}
+
+    // Camas de la isla por páginas de pageSize en orden de id, hasta lastBedId inclusive
+    private void forEachPage(IslandLabels island, long lastBedId, PageHandler handler) throws IOException {
+        long after = 0;
+        while (after < lastBedId) {
+            List<Object[]> rows = new ArrayList<>();
+            for (Object[] row : islandService.getBedIdsAndNumbers(island.islandId(), after, pageSize)) {
+                if ((Long) row[0] <= lastBedId) {
+                    rows.add(row);
+                }
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            handler.accept(rows);
+            after = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    // Datos de una página de camas; después se vacía el contexto para no acumular entidades
+    private List<Rendering> loadPage(IslandLabels island, List<Object[]> rows) throws IOException {
+        Map<Long, String> numbers = new HashMap<>();
+        rows.forEach(row -> numbers.put((Long) row[0], (String) row[1]));
+        List<Rendering> page = new ArrayList<>(rows.size());
+        for (Bed bed : bedRepository.findAllById(numbers.keySet())) {
+            page.add(new Rendering(island.path(bed.getId(), numbers.get(bed.getId())), qrCodeService.contentFor(bed)));
+        }
+        entityManager.clear();
+        return page;
+    }
+
+    private static void writeNext(ZipOutputStream zip, CompletionService<Rendered> completion) throws IOException {
+        Rendered rendered;
+        try {
+            rendered = completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación de etiquetas interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error al generar etiqueta QR: " + e.getCause().getMessage(), e.getCause());
+        }
+        zip.putNextEntry(new ZipEntry(rendered.path()));
+        zip.write(rendered.png());
+        zip.closeEntry();
+    }
+
+    private void writeSheet(Writer html, List<IslandLabels> islands, Map<Long, Long> lastBedIds, int size) throws IOException {
+        html.write("<!DOCTYPE html><html lang=\"es\"><head><meta charset=\"utf-8\"><title>Etiquetas QR</title><style>"
+            + "@page{size:A4;margin:10mm}body{font-family:sans-serif;margin:0}"
+            + ".page{display:grid;grid-template-columns:repeat(3,1fr);gap:6mm;break-after:page}"
+            + ".label{border:1px dashed #999;padding:3mm;text-align:center;break-inside:avoid}"
+            + ".label img{width:100%;max-width:" + size + "px;image-rendering:pixelated}"
+            + ".label p{margin:1mm 0;font-size:11pt}"
+            + "</style></head><body>");
+        int[] onPage = new int[1];
+        for (IslandLabels island : islands) {
+            Long lastBedId = lastBedIds.get(island.islandId());
+            if (lastBedId == null) {
+                continue; // isla sin camas
+            }
+            String islandName = escape(island.islandName());
+            forEachPage(island, lastBedId, rows -> {
+                for (Object[] row : rows) {
+                    String bedNumber = (String) row[1];
+                    if (onPage[0] == 0) {
+                        html.write("<div class=\"page\">");
+                    }
+                    html.write("<div class=\"label\"><img src=\"" + escape(island.path((Long) row[0], bedNumber)) + "\" alt=\"\">"
+                        + "<p><strong>Cama " + escape(bedNumber) + "</strong></p>"
+                        + "<p>" + islandName + "</p></div>");
+                    if (++onPage[0] == LABELS_PER_PAGE) {
+                        html.write("</div>");
+                        onPage[0] = 0;
+                    }
+                }
+            });
+        }
+        if (onPage[0] > 0) {
+            html.write("</div>");
+        }
+        html.write("</body></html>");
+    }
+
+    private static String slug(String text) {
+        if (text == null || text.isBlank()) {
+            return "sin-nombre";
+        }
+        String plain = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        String slug = plain.replaceAll("[^A-Za-z0-9_-]+", "-").replaceAll("^-+|-+$", "");
+        return slug.isEmpty() ? "sin-nombre" : slug;
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,344 @@
+package com.hospital.service;
+
+import com.hospital.util.LogLinearHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nl.martijndwars.webpush.AbstractPushService;
+import nl.martijndwars.webpush.Encoding;
+import nl.martijndwars.webpush.Notification;
+import nl.martijndwars.webpush.Utils;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.interfaces.ECPublicKey;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.jose4j.lang.JoseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Envío de Web Push (cifrado aes128gcm + VAPID) con nl.martijndwars.webpush para armar la
+// petición y un HttpClient compartido (conexiones HTTP/2 reutilizadas) para enviarla.
+// - Acotado: como mucho push.sender.max-pending envíos pendientes; si no hay lugar, submit
+//   devuelve false y el push se descarta (el SSE sigue llegando).
+// - Cada envío corre en un hilo virtual; por servicio de push (origen del endpoint) hay como
+//   mucho push.sender.per-origin-concurrency peticiones en vuelo.
+// - 429 / 5xx / error de red se reintentan con backoff exponencial con jitter (respetando
+//   Retry-After); 404 / 410 significan suscripción vencida y se borra.
+// - 401 / 403: el servicio de push rechaza la firma VAPID (la suscripción se hizo con otra clave
+//   pública); no se reintenta ni se borra, se cuenta aparte: el cliente debe volver a suscribirse.
+// - Sin claves VAPID configuradas el push queda deshabilitado, salvo push.vapid.ephemeral (par
+//   generado al arrancar, solo para pruebas: cambia en cada reinicio y rompe las suscripciones).
+@Component
+public class WebPushSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebPushSender.class);
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("content-length", "host", "connection");
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    @Autowired
+    private PushSubscriptionRegistry subscriptionRegistry;
+
+    @Value("${push.enabled:true}")
+    private boolean enabled;
+
+    @Value("${push.vapid.public-key:}")
+    private String vapidPublicKey;
+
+    @Value("${push.vapid.private-key:}")
+    private String vapidPrivateKey;
+
+    @Value("${push.vapid.ephemeral:false}")
+    private boolean ephemeral;
+
+    @Value("${push.vapid.subject:mailto:admin@hospital.com}")
+    private String vapidSubject;
+
+    @Value("${push.ttl-seconds:120}")
+    private int ttlSeconds;
+
+    @Value("${push.sender.max-pending:2000}")
+    private int maxPending;
+
+    @Value("${push.sender.per-origin-concurrency:16}")
+    private int perOriginConcurrency;
+
+    @Value("${push.sender.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${push.sender.backoff-ms:250}")
+    private long backoffMillis;
+
+    @Value("${push.sender.request-timeout-ms:10000}")
+    private long requestTimeoutMillis;
+
+    private RequestFactory requestFactory;
+    private String publicKey;
+    private HttpClient httpClient;
+    private Semaphore pendingSlots;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<String, Semaphore> originPermits = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private final LongAdder vapidRejected = new LongAdder();
+    private final ConcurrentHashMap<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+    private final LogLinearHistogram latencyMillis = new LogLinearHistogram();
+
+    // Expone la preparación de la petición (cifrado del payload + cabecera VAPID) sin el envío
+    // de la librería, que usa su propio cliente HTTP por petición
+    private static final class RequestFactory extends AbstractPushService<RequestFactory> {
+        RequestFactory(KeyPair keyPair, String subject) {
+            super(keyPair, subject);
+        }
+
+        nl.martijndwars.webpush.HttpRequest prepare(Notification notification)
+                throws GeneralSecurityException, IOException, JoseException {
+            return prepareRequest(notification, Encoding.AES128GCM);
+        }
+    }
+
+    @PostConstruct
+    public void init() throws GeneralSecurityException {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        KeyPair keyPair;
+        if (!vapidPublicKey.isBlank() && !vapidPrivateKey.isBlank()) {
+            keyPair = new KeyPair(Utils.loadPublicKey(vapidPublicKey), Utils.loadPrivateKey(vapidPrivateKey));
+            publicKey = vapidPublicKey;
+        } else if (ephemeral) {
+            // par efímero: las suscripciones no sobreviven a un reinicio y cada instancia tendría el suyo
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDH", BouncyCastleProvider.PROVIDER_NAME);
+            generator.initialize(ECNamedCurveTable.getParameterSpec("prime256v1"));
+            keyPair = generator.generateKeyPair();
+            publicKey = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(((ECPublicKey) keyPair.getPublic()).getQ().getEncoded(false));
+            logger.warn("VAPID keys not configured; using an ephemeral key pair (push.vapid.ephemeral=true). "
+                + "Subscriptions stop working after a restart");
+        } else {
+            keyPair = null;
+            if (enabled) {
+                enabled = false;
+                logger.warn("Web push disabled: VAPID keys not configured "
+                    + "(set PUSH_VAPID_PUBLIC_KEY and PUSH_VAPID_PRIVATE_KEY)");
+            }
+        }
+        requestFactory = keyPair != null ? new RequestFactory(keyPair, vapidSubject) : null;
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(executor)
+            .build();
+        pendingSlots = new Semaphore(maxPending);
+        logger.info("Web push sender ready (enabled={}, max pending {}, {} per origin)", enabled, maxPending, perOriginConcurrency);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // null cuando el push está deshabilitado por falta de claves
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    // Encola un envío; false si el push está deshabilitado o no hay lugar
+    public boolean submit(PushTarget target, byte[] payload, String topic) {
+        if (!enabled) {
+            return false;
+        }
+        if (!pendingSlots.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+        submitted.increment();
+        long start = System.nanoTime();
+        executor.execute(() -> {
+            try {
+                deliver(target, payload, topic, start);
+            } finally {
+                pendingSlots.release();
+            }
+        });
+        return true;
+    }
+
+    private void deliver(PushTarget target, byte[] payload, String topic, long start) {
+        HttpRequest request;
+        try {
+            request = buildRequest(target, payload, topic);
+        } catch (GeneralSecurityException | IOException | JoseException | IllegalArgumentException e) {
+            failed.increment();
+            logger.warn("Cannot encrypt push for subscription {}: {}", target.subscriptionId(), e.getMessage());
+            return;
+        }
+        Semaphore permits = originPermits.computeIfAbsent(originOf(target.endpoint()), o -> new Semaphore(perOriginConcurrency));
+        for (int attempt = 1; ; attempt++) {
+            int status;
+            long retryAfterMillis = 0;
+            try {
+                permits.acquire();
+                try {
+                    HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                    status = response.statusCode();
+                    retryAfterMillis = retryAfterMillis(response.headers().firstValue("Retry-After").orElse(null));
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.increment();
+                return;
+            } catch (IOException e) {
+                status = -1;
+                logger.debug("Push to {} failed: {}", target.endpoint(), e.getMessage());
+            }
+            responses.computeIfAbsent(status, s -> new LongAdder()).increment();
+
+            if (status >= 200 && status < 300) {
+                sent.increment();
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                synchronized (latencyMillis) {
+                    latencyMillis.record(millis);
+                }
+                return;
+            }
+            if (status == 404 || status == 410) {
+                prune(target);
+                return;
+            }
+            if (status == 401 || status == 403) {
+                // reintentar con la misma firma daría lo mismo; borrarla perdería una suscripción
+                // que vuelve a funcionar si se restauran las claves con que se creó
+                vapidRejected.increment();
+                logger.warn("Push to subscription {} rejected with status {}: VAPID key mismatch or invalid JWT",
+                    target.subscriptionId(), status);
+                return;
+            }
+            boolean retryable = status == -1 || status == 429 || status >= 500;
+            if (!retryable || attempt >= maxAttempts) {
+                failed.increment();
+                logger.warn("Push to subscription {} failed with status {} after {} attempts", target.subscriptionId(), status, attempt);
+                return;
+            }
+            retried.increment();
+            try {
+                Thread.sleep(backoff(attempt, retryAfterMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.increment();
+                return;
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(PushTarget target, byte[] payload, String topic)
+            throws GeneralSecurityException, IOException, JoseException {
+        Notification notification = new Notification(target.endpoint(), target.userPublicKey(), target.userAuth(), payload, ttlSeconds);
+        nl.martijndwars.webpush.HttpRequest prepared = requestFactory.prepare(notification);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(prepared.getUrl()))
+            .timeout(Duration.ofMillis(requestTimeoutMillis))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(prepared.getBody()));
+        prepared.getHeaders().forEach((name, value) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                builder.setHeader(name, value);
+            }
+        });
+        // un llamado de paciente es urgente: el servicio de push no debe diferirlo para ahorrar batería
+        builder.setHeader("Urgency", "high");
+        if (topic != null) {
+            builder.setHeader("Topic", topic);
+        }
+        return builder.build();
+    }
+
+    // El servicio de push dice que la suscripción ya no existe
+    private void prune(PushTarget target) {
+        pruned.increment();
+        if (target.subscriptionId() != null) {
+            subscriptionRegistry.remove(target.subscriptionId());
+            logger.info("Push subscription {} removed (gone at the push service)", target.subscriptionId());
+        }
+    }
+
+    // Exponencial con jitter del ±50 %; Retry-After (429 / 503) manda si es mayor
+    private long backoff(int attempt, long retryAfterMillis) {
+        long base = Math.min(MAX_BACKOFF_MILLIS, backoffMillis << Math.min(attempt - 1, 16));
+        long jittered = ThreadLocalRandom.current().nextLong(base / 2, base + base / 2 + 1);
+        return Math.min(MAX_BACKOFF_MILLIS, Math.max(jittered, retryAfterMillis));
+    }
+
+    private static long retryAfterMillis(String header) {
+        if (header == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(header.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return 0; // forma con fecha HTTP: se usa el backoff propio
+        }
+    }
+
+    private static String originOf(String endpoint) {
+        try {
+            URI uri = URI.create(endpoint);
+            return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() > 0 ? ":" + uri.getPort() : "");
+        } catch (IllegalArgumentException e) {
+            return endpoint;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxPending", maxPending);
+        stats.put("pending", maxPending - pendingSlots.availablePermits());
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("sent", sent.sum());
+        stats.put("failed", failed.sum());
+        stats.put("retried", retried.sum());
+        stats.put("pruned", pruned.sum());
+        stats.put("vapidRejected", vapidRejected.sum());
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        responses.forEach((status, count) -> byStatus.put(status, count.sum()));
+        stats.put("responses", byStatus);
+        synchronized (latencyMillis) {
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50Ms", latencyMillis.percentile(50));
+            latency.put("p90Ms", latencyMillis.percentile(90));
+            latency.put("p99Ms", latencyMillis.percentile(99));
+            latency.put("maxMs", latencyMillis.getMax());
+            stats.put("latency", latency);
+        }
+        return stats;
+    }
+}
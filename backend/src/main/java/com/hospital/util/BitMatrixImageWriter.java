@@ -0,0 +1,199 @@
+package com.hospital.util;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Escribe un BitMatrix de un QR directo a un stream, sin BufferedImage ni copias intermedias.
+// Recibe la matriz a un píxel por módulo (QRCodeWriter.encode con ancho y alto 0) y la escala al
+// dibujarla con la misma regla que QRCodeWriter: múltiplo entero y centrada, así que la imagen
+// sale igual que la de MatrixToImageWriter sobre la matriz ya escalada.
+// - PNG en escala de grises de 1 bit: una fila de 'size' píxeles ocupa size / 8 bytes y las
+//   filas repetidas de un mismo módulo se comprimen casi gratis.
+// - Deflater, CRC y buffers se reutilizan entre imágenes (pool acotado).
+// - SVG: un único path con un rectángulo por tramo horizontal de módulos oscuros.
+public class BitMatrixImageWriter {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+    private static final int CHUNK_SIZE = 8192;
+    private static final BlockingQueue<Workspace> POOL = new ArrayBlockingQueue<>(32);
+
+    private BitMatrixImageWriter() {
+    }
+
+    private static final class Workspace {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        final CRC32 crc = new CRC32();
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        final byte[] header = new byte[13];
+        byte[] input = new byte[CHUNK_SIZE];
+        byte[] row = new byte[64];
+        int chunkLength;
+    }
+
+    // PNG de size x size píxeles (si la matriz no entra, del tamaño mínimo que la contiene)
+    public static void writePng(BitMatrix matrix, int size, OutputStream out) throws IOException {
+        int modules = matrix.getWidth();
+        int width = Math.max(size, modules);
+        int multiple = width / modules;
+        int padding = (width - modules * multiple) / 2;
+        int rowBytes = (width + 7) / 8;
+        int scanline = rowBytes + 1;
+
+        Workspace ws = POOL.poll();
+        if (ws == null) {
+            ws = new Workspace();
+        }
+        try {
+            if (ws.row.length < scanline) {
+                ws.row = new byte[scanline];
+            }
+            if (ws.input.length < scanline) {
+                ws.input = new byte[scanline];
+            }
+            out.write(PNG_SIGNATURE);
+            writeInt(ws.header, 0, width);
+            writeInt(ws.header, 4, width);
+            ws.header[8] = 1;  // bits por píxel
+            ws.header[9] = 0;  // escala de grises
+            ws.header[10] = 0; // deflate
+            ws.header[11] = 0; // filtro adaptativo (todas las filas sin filtro)
+            ws.header[12] = 0; // sin entrelazado
+            writeChunk(out, ws, IHDR, ws.header, 13);
+
+            ws.deflater.reset();
+            ws.chunkLength = 0;
+            byte[] row = ws.row;
+            int inputLength = 0;
+            int builtFor = Integer.MIN_VALUE;
+            for (int y = 0; y < width; y++) {
+                int my = y < padding ? -1 : (y - padding) / multiple;
+                if (my >= modules) {
+                    my = -1;
+                }
+                if (my != builtFor) {
+                    buildRow(matrix, my, row, rowBytes, multiple, padding);
+                    builtFor = my;
+                }
+                if (inputLength + scanline > ws.input.length) {
+                    deflate(out, ws, inputLength);
+                    inputLength = 0;
+                }
+                System.arraycopy(row, 0, ws.input, inputLength, scanline);
+                inputLength += scanline;
+            }
+            deflate(out, ws, inputLength);
+            ws.deflater.finish();
+            while (!ws.deflater.finished()) {
+                drain(out, ws);
+            }
+            if (ws.chunkLength > 0) {
+                writeChunk(out, ws, IDAT, ws.chunk, ws.chunkLength);
+            }
+            writeChunk(out, ws, IEND, ws.chunk, 0);
+        } finally {
+            if (!POOL.offer(ws)) {
+                ws.deflater.end();
+            }
+        }
+    }
+
+    // Fila de salida con filtro 0; bit 1 = blanco. 'my' es la fila de módulos (-1: margen)
+    private static void buildRow(BitMatrix matrix, int my, byte[] row, int rowBytes, int multiple, int padding) {
+        row[0] = 0;
+        Arrays.fill(row, 1, rowBytes + 1, (byte) 0xff);
+        if (my < 0) {
+            return;
+        }
+        int modules = matrix.getWidth();
+        for (int mx = 0; mx < modules; mx++) {
+            if (!matrix.get(mx, my)) {
+                continue;
+            }
+            int from = padding + mx * multiple;
+            for (int x = from; x < from + multiple; x++) {
+                row[1 + (x >>> 3)] &= (byte) ~(0x80 >>> (x & 7));
+            }
+        }
+    }
+
+    private static void deflate(OutputStream out, Workspace ws, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        ws.deflater.setInput(ws.input, 0, length);
+        while (!ws.deflater.needsInput()) {
+            drain(out, ws);
+        }
+    }
+
+    private static void drain(OutputStream out, Workspace ws) throws IOException {
+        ws.chunkLength += ws.deflater.deflate(ws.chunk, ws.chunkLength, CHUNK_SIZE - ws.chunkLength);
+        if (ws.chunkLength == CHUNK_SIZE) {
+            writeChunk(out, ws, IDAT, ws.chunk, CHUNK_SIZE);
+            ws.chunkLength = 0;
+        }
+    }
+
+    private static void writeChunk(OutputStream out, Workspace ws, byte[] type, byte[] data, int length) throws IOException {
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(type);
+        out.write(data, 0, length);
+        ws.crc.reset();
+        ws.crc.update(type);
+        ws.crc.update(data, 0, length);
+        long crc = ws.crc.getValue();
+        out.write((int) (crc >>> 24));
+        out.write((int) (crc >>> 16));
+        out.write((int) (crc >>> 8));
+        out.write((int) crc);
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    // SVG vectorial de size x size (en unidades de módulo dentro del viewBox)
+    public static void writeSvg(BitMatrix matrix, int size, Writer out) throws IOException {
+        int modules = matrix.getWidth();
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + size + "\" height=\"" + size
+            + "\" viewBox=\"0 0 " + modules + " " + modules + "\" shape-rendering=\"crispEdges\">");
+        out.write("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        StringBuilder segment = new StringBuilder(32);
+        for (int y = 0; y < modules; y++) {
+            int x = 0;
+            while (x < modules) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < modules && matrix.get(x, y)) {
+                    x++;
+                }
+                segment.setLength(0);
+                segment.append('M').append(start).append(' ').append(y)
+                    .append('h').append(x - start).append("v1h-").append(x - start).append('z');
+                out.append(segment);
+            }
+        }
+        out.write("\"/></svg>");
+        out.flush();
+    }
+}
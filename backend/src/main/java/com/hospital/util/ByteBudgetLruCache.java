@@ -0,0 +1,74 @@
+package com.hospital.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+// Caché LRU acotada por bytes en lugar de por cantidad de entradas: 'weigher' da el tamaño de
+// cada valor y, al pasar de 'maxBytes', se descartan las menos usadas. Un valor más grande que
+// todo el presupuesto no se guarda. Un único monitor: pensada para valores caros de producir
+// (imágenes) donde el costo de la sección crítica es despreciable.
+public class ByteBudgetLruCache<K, V> {
+
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ByteBudgetLruCache(long maxBytes, ToLongFunction<V> weigher) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes >= 0");
+        }
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        remove(key);
+        if (weight > maxBytes) {
+            return;
+        }
+        entries.put(key, value);
+        bytes += weight;
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<K, V> e = eldest.next();
+            bytes -= weigher.applyAsLong(e.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void remove(K key) {
+        V previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= weigher.applyAsLong(previous);
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+}
@@ -0,0 +1,176 @@
+package com.hospital.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Commit agrupado: las peticiones concurrentes que llegan dentro de 'windowMillis' se ejecutan
+// en una sola transacción (inserciones en lote por JDBC y un único commit).
+// - cada petición recibe su propio resultado o excepción: un fallo de negocio (RuntimeException
+//   lanzada por 'work') no afecta a las demás del lote; 'work' no debe ser @Transactional,
+//   porque la excepción marcaría la transacción compartida como rollback-only.
+// - si el commit del lote falla (p. ej. una restricción al hacer flush), cada petición se
+//   reintenta sola en su propia transacción.
+// - los resultados se entregan después del commit: quien espera nunca ve un id sin confirmar.
+public class GroupCommitter<I, O> {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private final String name;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final TransactionTemplate transactionTemplate;
+    private final Function<I, O> work;
+    private final BlockingQueue<Pending<I, O>> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retriedAlone = new LongAdder();
+    private final AtomicLong maxBatch = new AtomicLong();
+
+    private record Pending<I, O>(I input, CompletableFuture<O> result) {}
+
+    private record Outcome<O>(O value, RuntimeException error) {}
+
+    public GroupCommitter(String name, long windowMillis, int maxBatchSize, TransactionTemplate transactionTemplate, Function<I, O> work) {
+        if (windowMillis < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("windowMillis >= 0 y maxBatchSize > 0");
+        }
+        this.name = name;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.transactionTemplate = transactionTemplate;
+        this.work = work;
+    }
+
+    public synchronized void start(int workerCount) {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name(name + "-" + i).start(this::run));
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        Pending<I, O> p;
+        while ((p = queue.poll()) != null) {
+            p.result().completeExceptionally(new IllegalStateException(name + " detenido"));
+        }
+    }
+
+    // Bloquea hasta que el lote que contiene la petición confirma; relanza la excepción de 'work'
+    public O submit(I input) {
+        if (!running) {
+            throw new IllegalStateException(name + " detenido");
+        }
+        CompletableFuture<O> result = new CompletableFuture<>();
+        queue.add(new Pending<>(input, result));
+        submitted.increment();
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long done = batches.sum();
+        stats.put("submitted", submitted.sum());
+        stats.put("batches", done);
+        stats.put("avgBatchSize", done == 0 ? 0.0 : (double) submitted.sum() / done);
+        stats.put("maxBatchSize", maxBatch.get());
+        stats.put("retriedAlone", retriedAlone.sum());
+        stats.put("queued", queue.size());
+        return stats;
+    }
+
+    private void run() {
+        List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                // ventana corta para que se sumen las pulsaciones concurrentes
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<I, O> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batches.increment();
+                maxBatch.accumulateAndGet(batch.size(), Math::max);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.result().completeExceptionally(new IllegalStateException(name + " detenido")));
+                return;
+            } catch (Exception e) {
+                logger.error("{}: unexpected error committing batch of {}", name, batch.size(), e);
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending<I, O>> batch) {
+        List<Outcome<O>> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> {
+                List<Outcome<O>> results = new ArrayList<>(batch.size());
+                for (Pending<I, O> p : batch) {
+                    try {
+                        results.add(new Outcome<>(work.apply(p.input()), null));
+                    } catch (RuntimeException e) {
+                        results.add(new Outcome<>(null, e));
+                    }
+                }
+                return results;
+            });
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            logger.warn("{}: batch of {} failed to commit ({}), retrying one by one", name, batch.size(), e.getMessage());
+            for (Pending<I, O> p : batch) {
+                retriedAlone.increment();
+                commit(List.of(p));
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Outcome<O> outcome = outcomes.get(i);
+            if (outcome.error() != null) {
+                batch.get(i).result().completeExceptionally(outcome.error());
+            } else {
+                batch.get(i).result().complete(outcome.value());
+            }
+        }
+    }
+}
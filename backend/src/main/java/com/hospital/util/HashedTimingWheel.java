@@ -0,0 +1,173 @@
+package com.hospital.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+// Rueda de temporización con hash (estilo Netty/Kafka) para miles de plazos en memoria.
+// - schedule/cancel son O(1) y no bloquean: las altas pasan por una cola concurrente.
+// - un único hilo avanza la rueda cada 'tickMillis' y entrega las claves vencidas
+//   del tick en un solo lote, para que el consumidor pueda hacer un UPDATE agrupado.
+// Los plazos son epoch millis, así que se pueden reconstruir desde la BD al arrancar.
+public class HashedTimingWheel<K> {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private final String name;
+    private final long tickMillis;
+    private final int mask;
+    private final List<Entry<K>>[] buckets;
+    private final Queue<Entry<K>> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Map<K, Entry<K>> live = new ConcurrentHashMap<>();
+    private final Consumer<List<K>> onExpire;
+
+    private volatile Thread worker;
+    private volatile boolean running;
+    private long currentTick;
+
+    private static final class Entry<K> {
+        final K key;
+        final long deadlineTick;
+        volatile boolean cancelled;
+
+        Entry(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, Consumer<List<K>> onExpire) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis > 0 y wheelSize potencia de 2");
+        }
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.onExpire = onExpire;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        currentTick = System.currentTimeMillis() / tickMillis;
+        worker = Thread.ofPlatform().daemon().name(name).start(this::run);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    // Programa (o reprograma) la clave; un plazo ya vencido se entrega en el próximo tick
+    public void schedule(K key, long deadlineEpochMillis) {
+        Entry<K> entry = new Entry<>(key, Math.floorDiv(deadlineEpochMillis + tickMillis - 1, tickMillis));
+        Entry<K> previous = live.put(key, entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        pendingAdds.add(entry);
+    }
+
+    public boolean cancel(K key) {
+        Entry<K> entry = live.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.cancelled = true;
+        return true;
+    }
+
+    public boolean isScheduled(K key) {
+        return live.containsKey(key);
+    }
+
+    public int pending() {
+        return live.size();
+    }
+
+    private void run() {
+        List<K> expired = new ArrayList<>();
+        while (running) {
+            long nextTickAt = (currentTick + 1) * tickMillis;
+            long sleep = nextTickAt - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            long nowTick = System.currentTimeMillis() / tickMillis;
+            transferPending(nowTick, expired);
+            // si el hilo se retrasó, se procesan todos los ticks pendientes (como máximo una vuelta completa)
+            long from = Math.max(currentTick + 1, nowTick - mask);
+            for (long tick = from; tick <= nowTick; tick++) {
+                expireBucket(tick, expired);
+            }
+            currentTick = nowTick;
+            if (!expired.isEmpty()) {
+                try {
+                    onExpire.accept(new ArrayList<>(expired));
+                } catch (Exception e) {
+                    logger.error("Timing wheel {} failed to process {} expired entries", name, expired.size(), e);
+                }
+                expired.clear();
+            }
+        }
+    }
+
+    private void transferPending(long nowTick, List<K> expired) {
+        Entry<K> entry;
+        while ((entry = pendingAdds.poll()) != null) {
+            if (entry.cancelled) {
+                continue;
+            }
+            if (entry.deadlineTick <= nowTick) {
+                collect(entry, expired);
+            } else {
+                buckets[(int) (entry.deadlineTick & mask)].add(entry);
+            }
+        }
+    }
+
+    private void expireBucket(long tick, List<K> expired) {
+        List<Entry<K>> bucket = buckets[(int) (tick & mask)];
+        Iterator<Entry<K>> it = bucket.iterator();
+        while (it.hasNext()) {
+            Entry<K> entry = it.next();
+            if (entry.cancelled) {
+                it.remove();
+            } else if (entry.deadlineTick <= tick) {
+                it.remove();
+                collect(entry, expired);
+            }
+            // si no, pertenece a una vuelta posterior de la rueda
+        }
+    }
+
+    private void collect(Entry<K> entry, List<K> expired) {
+        if (live.remove(entry.key, entry)) {
+            expired.add(entry.key);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.hospital.util;
+
+// Histograma log-lineal de memoria fija (estilo HdrHistogram) para valores enteros no negativos.
+// Los valores < 64 se cuentan exactos; por encima, cada potencia de 2 se divide en 32 sub-cubos,
+// así el error relativo de un percentil es como mucho ~3 %. Los valores mayores que
+// MAX_VALUE se cuentan en el último cubo (pero 'max' guarda el valor real).
+// Tamaño constante: 640 contadores (~2,5 KB) sin importar cuántos valores se registren.
+// No es thread-safe: quien lo usa sincroniza.
+public class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;          // 32
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;              // 64
+    private static final int MAX_BITS = 24;
+    public static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    private static final int SIZE = LINEAR_LIMIT + (MAX_BITS - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final int[] counts = new int[SIZE];
+    private long count;
+    private long sum;
+    private long max;
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[indexOf(Math.min(v, MAX_VALUE))]++;
+        count++;
+        sum += v;
+        max = Math.max(max, v);
+    }
+
+    public void add(LogLinearHistogram other) {
+        for (int i = 0; i < SIZE; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    // Valor representativo (punto medio del cubo) del percentil p en [0, 100]
+    public long percentile(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < SIZE; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return i == SIZE - 1 ? max : Math.min(midpointOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(long v) {
+        if (v < LINEAR_LIMIT) {
+            return (int) v;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int shift = msb - SUB_BUCKET_BITS;
+        int sub = (int) (v >>> shift);                                   // [32, 63]
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    static long midpointOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return (sub << shift) + (1L << shift) / 2;
+    }
+}
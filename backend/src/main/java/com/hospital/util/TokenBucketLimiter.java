@@ -0,0 +1,123 @@
+package com.hospital.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Token bucket por clave, en memoria y con bloqueo por franjas.
+// - cada clave cae en una de 'stripes' franjas (hash); una franja es un LinkedHashMap en orden
+//   de acceso protegido por su propio monitor, así claves distintas casi nunca compiten.
+// - el cubo se guarda como un único long (forma GCRA): 'tat' es el instante en que el cubo
+//   vuelve a estar lleno. Equivale a capacidad 'burst' con recarga de 'perSecond' fichas/s,
+//   sin hilos de recarga ni aritmética de punto flotante.
+// - memoria acotada: cada franja descarta la clave usada hace más tiempo al pasar de su cupo
+//   (esa clave vuelve con el cubo lleno, lo que solo puede favorecerla).
+public class TokenBucketLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Stripe[] stripes;
+    private final int mask;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private static final class Bucket {
+        long tat;
+        long rejected;
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+        private final int maxKeys;
+
+        Stripe(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxKeys;
+        }
+    }
+
+    public TokenBucketLimiter(int burst, double perSecond, int maxKeys, int stripes) {
+        if (burst <= 0 || perSecond <= 0 || maxKeys <= 0 || stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("burst, perSecond y maxKeys > 0; stripes potencia de 2");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.mask = stripes - 1;
+        this.stripes = new Stripe[stripes];
+        int perStripe = Math.max(1, maxKeys / stripes);
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    // 0 si se concede una ficha; si no, nanosegundos hasta que haya una disponible
+    public long tryAcquire(String key, long nowNanos) {
+        Stripe stripe = stripes[spread(key.hashCode()) & mask];
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                bucket = new Bucket();
+                bucket.tat = nowNanos;
+                stripe.put(key, bucket);
+            }
+            long next = Math.max(bucket.tat, nowNanos) + intervalNanos;
+            long excess = next - nowNanos - burstNanos;
+            if (excess > 0) {
+                bucket.rejected++;
+                rejected.increment();
+                return excess;
+            }
+            bucket.tat = next;
+        }
+        allowed.increment();
+        return 0;
+    }
+
+    public long allowedCount() {
+        return allowed.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public int size() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.size();
+            }
+        }
+        return total;
+    }
+
+    // Claves con más rechazos (entre las que siguen en memoria), de mayor a menor
+    public Map<String, Long> topRejected(int limit) {
+        List<Map.Entry<String, Long>> all = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Map.Entry<String, Bucket> e : stripe.entrySet()) {
+                    if (e.getValue().rejected > 0) {
+                        all.add(Map.entry(e.getKey(), e.getValue().rejected));
+                    }
+                }
+            }
+        }
+        all.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(limit, all.size()); i++) {
+            top.put(all.get(i).getKey(), all.get(i).getValue());
+        }
+        return top;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,81 @@
+-- Tablas y columnas que agregaron las funciones de llamados (vencimiento, escalamiento, outbox
+-- y bus entre instancias, idempotencia, archivo, enfriamiento por cama) sobre el esquema base.
+
+-- Enfriamiento por cama (BedRepository.claimCallSlot)
+alter table beds add column last_call_at timestamp(6);
+
+-- Escalamiento y reconocimiento
+alter table calls add column escalation_level integer;
+alter table calls add column escalated_at timestamp(6);
+alter table calls add column acknowledged_at timestamp(6);
+
+-- calls.id pasa a la secuencia pooled calls_seq (allocationSize = Call.ID_ALLOCATION_SIZE);
+-- CallIdSequenceInitializer la adelanta por encima de max(calls.id) al arrancar.
+alter table calls alter column id drop identity;
+
+create sequence calls_seq start with 1 increment by 50;
+
+create index idx_calls_nurse_status_created on calls (nurse_id, status, created_at);
+create index idx_calls_bed_status_created on calls (bed_id, status, created_at);
+create index idx_calls_status_created on calls (status, created_at);
+
+create table calls_archive (
+    id bigint not null,
+    bed_id bigint,
+    island_id bigint,
+    patient_id bigint,
+    nurse_id bigint,
+    status varchar(32),
+    created_at timestamp(6),
+    expires_at timestamp(6),
+    escalation_level integer,
+    escalated_at timestamp(6),
+    acknowledged_at timestamp(6),
+    archived_at timestamp(6) not null,
+    primary key (id)
+);
+
+create index idx_calls_archive_created on calls_archive (created_at);
+create index idx_calls_archive_nurse_created on calls_archive (nurse_id, created_at);
+create index idx_calls_archive_bed_created on calls_archive (bed_id, created_at);
+
+create table call_escalations (
+    id bigint generated by default as identity,
+    call_id bigint not null,
+    hop integer not null,
+    from_nurse_id bigint,
+    to_nurse_id bigint,
+    target varchar(16) not null,
+    escalated_at timestamp(6) not null,
+    primary key (id)
+);
+
+create table call_idempotency_keys (
+    idempotency_key varchar(255) not null,
+    bed_id bigint not null,
+    call_id bigint not null,
+    call_created_at timestamp(6),
+    created_at timestamp(6) not null,
+    primary key (idempotency_key)
+);
+
+create index idx_call_idem_created on call_idempotency_keys (created_at);
+
+create table call_outbox (
+    id bigint generated by default as identity,
+    event_type varchar(32) not null,
+    call_id bigint,
+    nurse_id bigint,
+    payload character varying not null,
+    push_title varchar(255),
+    push_body varchar(1000),
+    created_at timestamp(6) not null,
+    primary key (id)
+);
+
+create table outbox_cursors (
+    consumer varchar(100) not null,
+    position bigint not null,
+    updated_at timestamp(6),
+    primary key (consumer)
+);
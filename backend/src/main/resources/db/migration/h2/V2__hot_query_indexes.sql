@@ -0,0 +1,23 @@
+-- Índices para las consultas frecuentes que V1 y V1_1 no cubren.
+-- Ya cubiertos: nurses(user_id) y beds(qr_code) por sus restricciones unique (findByUserId,
+-- findByQrCode); calls(nurse_id|bed_id, status, created_at) y calls(status, created_at) en V1_1.
+
+-- CallRepository.findAckTimesSince, CallRetentionService.getHistory y exportación por rango
+create index idx_calls_created on calls (created_at);
+
+-- BedRepository.findByIsland / findByBedNumberAndIsland
+create index idx_beds_island_number on beds (island_id, bed_number);
+
+-- CallEscalationRepository.findByCallIdOrderByHopAsc / findByCallIdInOrderByHopAsc
+create index idx_call_escalations_call_hop on call_escalations (call_id, hop);
+
+-- UserRepository.findByEmail / existsByEmail (registro y login)
+create index idx_users_email on users (email);
+
+-- OutboxCursorRepository.deleteStale (limpieza de cursores de nodos caídos)
+create index idx_outbox_cursors_updated on outbox_cursors (updated_at);
+
+-- Bases H2 creadas por ddl-auto=update: las columnas TEXT quedaron como CLOB
+alter table beds alter column qr_code_data set data type character varying;
+alter table call_outbox alter column payload set data type character varying;
+alter table push_subscriptions alter column endpoint set data type character varying;
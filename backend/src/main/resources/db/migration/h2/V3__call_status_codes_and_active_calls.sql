@@ -0,0 +1,26 @@
+-- calls.status y calls_archive.status pasan de texto al código smallint de CallStatus
+-- (1 ACTIVE, 2 ACKNOWLEDGED, 3 EXPIRED; un valor nulo o desconocido se toma como cerrado, 3).
+-- Se convierte en el lugar (primero el código como texto, luego el tipo) para conservar los
+-- índices que incluyen status.
+update calls set status = case status when 'ACTIVE' then '1' when 'ACKNOWLEDGED' then '2' else '3' end;
+alter table calls alter column status set data type smallint;
+alter table calls alter column status set not null;
+
+update calls_archive set status = case status when 'ACTIVE' then '1' when 'ACKNOWLEDGED' then '2' else '3' end;
+alter table calls_archive alter column status set data type smallint;
+
+-- Llamados abiertos (ver ActiveCall): se mantiene en la misma transacción que calls
+create table active_calls (
+    call_id bigint not null,
+    nurse_id bigint,
+    bed_id bigint,
+    created_at timestamp(6) not null,
+    expires_at timestamp(6),
+    primary key (call_id),
+    constraint fk_active_calls_call foreign key (call_id) references calls (id)
+);
+
+create index idx_active_calls_nurse_created on active_calls (nurse_id, created_at);
+
+insert into active_calls (call_id, nurse_id, bed_id, created_at, expires_at)
+select id, nurse_id, bed_id, coalesce(created_at, localtimestamp), expires_at from calls where status = 1;
@@ -0,0 +1,10 @@
+-- Una fila por endpoint de push (PushSubscriptionRegistry hace upsert por endpoint_hash, el
+-- SHA-256 en hex del endpoint). Las filas sin endpoint no sirven para enviar y se borran; de los
+-- duplicados que dejaron las re-suscripciones del navegador queda el más nuevo.
+delete from push_subscriptions where endpoint is null;
+alter table push_subscriptions add column endpoint_hash varchar(64);
+update push_subscriptions set endpoint_hash = lower(rawtohex(hash('SHA-256', endpoint)));
+delete from push_subscriptions s
+    where exists (select 1 from push_subscriptions newer where newer.endpoint_hash = s.endpoint_hash and newer.id > s.id);
+alter table push_subscriptions alter column endpoint_hash set not null;
+create unique index uk_push_subscriptions_endpoint_hash on push_subscriptions (endpoint_hash);
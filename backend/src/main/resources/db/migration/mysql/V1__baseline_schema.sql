@@ -0,0 +1,100 @@
+-- Esquema base: exactamente el que ddl-auto=update generaba antes de Flyway (mismas columnas
+-- y mismos nombres de restricción que eligió Hibernate). Las bases ya existentes se marcan en
+-- esta versión (spring.flyway.baseline-on-migrate) y reciben desde V1_1 en adelante; una base
+-- nueva queda igual a ellas.
+
+create table beds (
+    id bigint not null auto_increment,
+    bed_number varchar(255) not null,
+    qr_code varchar(255),
+    qr_code_data text,
+    island_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table calls (
+    id bigint not null auto_increment,
+    created_at datetime(6),
+    expires_at datetime(6),
+    status varchar(255),
+    bed_id bigint,
+    nurse_id bigint,
+    patient_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table islands (
+    id bigint not null auto_increment,
+    description varchar(500),
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table nurse_beds (
+    nurse_id bigint not null,
+    bed_id bigint not null
+) engine=InnoDB;
+
+create table nurse_islands (
+    nurse_id bigint not null,
+    island_id bigint not null
+) engine=InnoDB;
+
+create table nurses (
+    id bigint not null auto_increment,
+    license_number varchar(255),
+    specialization varchar(255),
+    user_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table patients (
+    id bigint not null auto_increment,
+    admission_date datetime(6),
+    diagnosis varchar(1000),
+    discharge_date datetime(6),
+    medical_record_number varchar(255),
+    treatment varchar(2000),
+    bed_id bigint,
+    user_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table push_subscriptions (
+    id bigint not null auto_increment,
+    auth_key varchar(255),
+    endpoint text,
+    p256dh varchar(255),
+    nurse_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table users (
+    id bigint not null auto_increment,
+    email varchar(255) not null,
+    full_name varchar(255) not null,
+    password varchar(255) not null,
+    role enum ('ADMIN','NURSE','PATIENT') not null,
+    username varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table beds add constraint UK_p48ehdlt8hmwtpgvs4kjwm2qy unique (qr_code);
+alter table islands add constraint UK_nps47miv0lca6m8j7ebr86pe9 unique (name);
+alter table nurses add constraint UK_ml2dkuvlx0yrr9ajhb9hx5sxl unique (user_id);
+alter table patients add constraint UK_d3xtyxp6tr68po24xyj9770vx unique (bed_id);
+alter table patients add constraint UK_9tbsl3fmey0eofbm2xj69v4qs unique (user_id);
+alter table users add constraint UK_r43af9ap4edm43mmtq01oddj6 unique (username);
+
+alter table beds add constraint FK4qjik76a5m3kh2c40yrx8gi79 foreign key (island_id) references islands (id);
+alter table calls add constraint FKk1rn59y20mw6xvwpm59jatk01 foreign key (bed_id) references beds (id);
+alter table calls add constraint FK3uxwupriorbtguv95di89240q foreign key (nurse_id) references nurses (id);
+alter table calls add constraint FKla5mt223r11afhw4uiypc3o1e foreign key (patient_id) references patients (id);
+alter table nurse_beds add constraint FKiyckqpk6wair4us0gsq9u9eou foreign key (bed_id) references beds (id);
+alter table nurse_beds add constraint FKp9914wxjwqm2wd449rta8m8r3 foreign key (nurse_id) references nurses (id);
+alter table nurse_islands add constraint FKt0j85ql9wuh12uktiwfbmgfn6 foreign key (island_id) references islands (id);
+alter table nurse_islands add constraint FKgetqhuj70dhb480hsi6jppgb7 foreign key (nurse_id) references nurses (id);
+alter table nurses add constraint FK91rtea8eoy5devpkpwuqsjk7c foreign key (user_id) references users (id);
+alter table patients add constraint FKdlnwuhgicoebllbynwuofnk5 foreign key (bed_id) references beds (id);
+alter table patients add constraint FKuwca24wcd1tg6pjex8lmc0y7 foreign key (user_id) references users (id);
+alter table push_subscriptions add constraint FK6td8tkvr4nr0rall3o67mjhk0 foreign key (nurse_id) references nurses (id);
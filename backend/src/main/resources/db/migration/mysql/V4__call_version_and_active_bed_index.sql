@@ -0,0 +1,5 @@
+-- Bloqueo optimista de calls (@Version en Call); las filas existentes empiezan en 0
+alter table calls add column version bigint default 0 not null;
+
+-- Reconocimiento en lote por cama (ActiveCallRepository.findCallIdsByBedId)
+create index idx_active_calls_bed on active_calls (bed_id);
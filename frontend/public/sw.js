@@ -13,6 +13,11 @@ self.addEventListener('push', function(event) {
     badge: '/favicon.png',
     data: data
   }
+  // los llamados de un enfermero comparten tag: la notificación agrupada reemplaza a la anterior
+  if (data.tag) {
+    options.tag = data.tag
+    options.renotify = true
+  }
 
   event.waitUntil(self.registration.showNotification(title, options))
 })